@@ -0,0 +1,184 @@
+// Primitive int Skip List Set Collection
+// Program created by Connor Cribley
+
+/*
+    DISCLAIMER: This program was created in its entirety by Connor Cribley. I do not authorize anybody to
+    replicate, alter, submit, or otherwise use this program in a way which violates the academic integrity of any
+    educational institution. Any attempt to use this code to commit academic plagiarism was done so without my
+    permission.
+*/
+
+
+import java.util.*;
+
+/*
+Skip list class specialized for int keys. It uses the same algorithm as SkipListSet, but items are indexes
+into primitive arrays rather than objects (see PrimitiveSkipListSet, which holds the links and levels), and
+keys[i] is the key of item i. Keys are never boxed and comparisons are plain primitive comparisons.
+
+LongSkipListSet is this class with long keys. Only the code that touches keys is here, so a change to it has to be
+made in both.
+*/
+public class IntSkipListSet extends PrimitiveSkipListSet {
+
+    //Iterator class
+    class IntSkipListSetIterator implements PrimitiveIterator.OfInt {
+        //Iterator item
+        int currentItem;
+
+        //Constructor
+        public IntSkipListSetIterator() {
+            //The first item is the one directly after the head on the bottom level
+            currentItem = nextItem(HEAD);
+        }
+
+        //Returns false if we have reached the tail
+        @Override
+        public boolean hasNext() {
+            return currentItem != TAIL;
+        }
+
+        //Returns the key of the current iteration
+        @Override
+        public int nextInt() {
+            if (currentItem == TAIL)
+                throw new NoSuchElementException();
+            int key = keys[currentItem];
+            currentItem = nextItem(currentItem);
+            return key;
+        }
+    }
+
+    //Key of each item
+    private int[] keys;
+
+
+    //Constructors
+
+    //Builds a new, empty skip list
+    public IntSkipListSet() {
+        this(16);
+    }
+
+    //Builds a new, empty skip list whose items get their levels from the given generator
+    public IntSkipListSet(LevelGenerator levelGenerator) {
+        this(16, levelGenerator);
+    }
+
+    //Builds a new, empty skip list with room for the given number of keys before it has to grow
+    public IntSkipListSet(int initialCapacity) {
+        this(initialCapacity, LevelGenerator.DEFAULT);
+    }
+
+    //Builds a new, empty skip list with room for the given number of keys, whose items get their levels from the
+    //given generator
+    public IntSkipListSet(int initialCapacity, LevelGenerator levelGenerator) {
+        super(Math.max(initialCapacity, 2) + 2, levelGenerator);
+        keys = new int[previous.length];
+    }
+
+    //Builds a new skip list then adds all the keys in the array to it
+    public IntSkipListSet(int[] keys) {
+        this(keys.length);
+        for (int key : keys)
+            add(key);
+    }
+
+    //Returns true if the key is in the list
+    public boolean contains(int key) {
+        //Start at the head of the linked list, on the highest level in use
+        int currentItem = HEAD;
+
+        for (int level = currentHeight; level >= 0; level--) {
+            //While the next item in the row is less than key, and we are not at the end of the row
+            int nextItem = links[linkStart[currentItem] + level];
+            while (nextItem != TAIL && keys[nextItem] < key) {
+                currentItem = nextItem;
+                nextItem = links[linkStart[currentItem] + level];
+            }
+            //Stop as soon as we find it, on any level
+            if (nextItem != TAIL && keys[nextItem] == key)
+                return true;
+        }
+        return false;
+    }
+
+    //Returns a new iterator over the keys in ascending order
+    public PrimitiveIterator.OfInt iterator() {
+        return new IntSkipListSetIterator();
+    }
+
+    //Returns the keys in ascending order
+    public int[] toArray() {
+        int[] array = new int[numItems];
+        int i = 0;
+        for (int currentItem = nextItem(HEAD); currentItem != TAIL; currentItem = nextItem(currentItem))
+            array[i++] = keys[currentItem];
+        return array;
+    }
+
+    //Adds the key, returning false if it was already in the list
+    public boolean add(int key) {
+        //Find the items that go before the key on every level
+        int previousItem = findPredecessors(key);
+        int nextItem = nextItem(previousItem);
+        //If the key is already in the skip list, return false
+        if (nextItem != TAIL && keys[nextItem] == key)
+            return false;
+        //insertItem() may grow the key array, so it has to be called before keys is read
+        int newItem = insertItem(previousItem, nextItem);
+        keys[newItem] = key;
+        return true;
+    }
+
+    //Removes the key, returning false if it was not in the list
+    public boolean remove(int key) {
+        //Find the items before the key on every level
+        int previousItem = findPredecessors(key);
+        int currentItem = nextItem(previousItem);
+        //If the key is not in the skip list, return false
+        if (currentItem == TAIL || keys[currentItem] != key)
+            return false;
+        unlinkItem(currentItem, previousItem);
+        return true;
+    }
+
+    //Returns the smallest key
+    public int first() {
+        if (numItems == 0)
+            throw new NoSuchElementException();
+        return keys[nextItem(HEAD)];
+    }
+
+    //Returns the largest key
+    public int last() {
+        if (numItems == 0)
+            throw new NoSuchElementException();
+        return keys[previous[TAIL]];
+    }
+
+    //Grows the key array along with the rest of the item storage
+    @Override
+    void growKeys(int capacity) {
+        keys = Arrays.copyOf(keys, capacity);
+    }
+
+    //Traverses the skip list, recording in update the last item strictly before key on each level in use.
+    //Returns that item on the bottom level
+    private int findPredecessors(int key) {
+        //Start at the head of the linked list, on the highest level in use
+        int currentItem = HEAD;
+
+        for (int level = currentHeight; level >= 0; level--) {
+            //While the next item in the row is less than key, and we are not at the end of the row
+            int nextItem = links[linkStart[currentItem] + level];
+            while (nextItem != TAIL && keys[nextItem] < key) {
+                currentItem = nextItem;
+                nextItem = links[linkStart[currentItem] + level];
+            }
+            //Remember where we dropped down
+            update[level] = currentItem;
+        }
+        return currentItem;
+    }
+}
@@ -0,0 +1,142 @@
+// Key codec for the skip list set's binary format
+// Program created by Connor Cribley
+
+/*
+    DISCLAIMER: This program was created in its entirety by Connor Cribley. I do not authorize anybody to
+    replicate, alter, submit, or otherwise use this program in a way which violates the academic integrity of any
+    educational institution. Any attempt to use this code to commit academic plagiarism was done so without my
+    permission.
+*/
+
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/*
+Writes keys of type T into, and reads them back out of, the binary format of SkipListSet.writeTo(). Keys are
+written in the set's order, and each one is given the key written before it (null for the first), so a codec can
+store just the difference between them. A set with a comparator can be in any order, so a codec can't assume a key
+is greater than the one before it. Unlike KeySerializer, keys can take up any number of bytes.
+*/
+public interface KeyCodec<T> {
+
+    //Codec for long keys. Each key is stored as its difference from the previous one, zigzag encoded (0, -1, 1,
+    //-2, ... become 0, 1, 2, 3, ...) into a varint, so keys that are close together take one or two bytes instead
+    //of eight in either order
+    KeyCodec<Long> LONG = new KeyCodec<Long>() {
+        @Override
+        public int maxSize(Long key) { return 10; }
+        @Override
+        public void encode(Long key, Long previousKey, ByteBuffer buffer) {
+            //The first key is stored as its difference from 0. A difference that overflows wraps around, and
+            //decoding wraps it back
+            long difference = previousKey == null ? key : key - previousKey;
+            writeVarLong(buffer, (difference << 1) ^ (difference >> 63));
+        }
+        @Override
+        public Long decode(ByteBuffer buffer, Long previousKey) {
+            long value = readVarLong(buffer);
+            long difference = (value >>> 1) ^ -(value & 1);
+            return previousKey == null ? difference : previousKey + difference;
+        }
+    };
+
+    //Codec for int keys, stored the same way as LONG
+    KeyCodec<Integer> INT = new KeyCodec<Integer>() {
+        @Override
+        public int maxSize(Integer key) { return 5; }
+        @Override
+        public void encode(Integer key, Integer previousKey, ByteBuffer buffer) {
+            int difference = previousKey == null ? key : key - previousKey;
+            writeVarLong(buffer, Integer.toUnsignedLong((difference << 1) ^ (difference >> 31)));
+        }
+        @Override
+        public Integer decode(ByteBuffer buffer, Integer previousKey) {
+            int value = (int) readVarLong(buffer);
+            int difference = (value >>> 1) ^ -(value & 1);
+            return previousKey == null ? difference : previousKey + difference;
+        }
+    };
+
+    //Codec for string keys. Sorted strings often start the same way as the one before them, so each key is stored
+    //as the number of characters it shares with the previous key, followed by the rest of it in UTF-8
+    KeyCodec<String> STRING = new KeyCodec<String>() {
+        @Override
+        public int maxSize(String key) { return 10 + 3 * key.length(); }
+        @Override
+        public void encode(String key, String previousKey, ByteBuffer buffer) {
+            int shared = 0;
+            if (previousKey != null) {
+                int limit = Math.min(key.length(), previousKey.length());
+                while (shared < limit && key.charAt(shared) == previousKey.charAt(shared))
+                    shared++;
+                //Don't split a surrogate pair between the shared part and the rest
+                if (shared > 0 && Character.isHighSurrogate(key.charAt(shared - 1)))
+                    shared--;
+            }
+            byte[] rest = key.substring(shared).getBytes(StandardCharsets.UTF_8);
+            writeVarLong(buffer, shared);
+            writeVarLong(buffer, rest.length);
+            buffer.put(rest);
+        }
+        @Override
+        public String decode(ByteBuffer buffer, String previousKey) {
+            int shared = (int) readVarLong(buffer);
+            byte[] rest = new byte[(int) readVarLong(buffer)];
+            buffer.get(rest);
+            String suffix = new String(rest, StandardCharsets.UTF_8);
+            return shared == 0 ? suffix : previousKey.substring(0, shared) + suffix;
+        }
+    };
+
+    //Largest number of bytes encode() can write for the key
+    int maxSize(T key);
+
+    //Writes the key into the buffer, given the key written before it (null for the first key)
+    void encode(T key, T previousKey, ByteBuffer buffer);
+
+    //Reads a key out of the buffer, given the key read before it (null for the first key)
+    T decode(ByteBuffer buffer, T previousKey);
+
+    //Returns a codec that stores every key in the fixed number of bytes of a KeySerializer
+    static <T extends Comparable<T>> KeyCodec<T> of(KeySerializer<T> serializer) {
+        return new KeyCodec<T>() {
+            @Override
+            public int maxSize(T key) {
+                return serializer.size();
+            }
+            @Override
+            public void encode(T key, T previousKey, ByteBuffer buffer) {
+                serializer.write(key, buffer, buffer.position());
+                buffer.position(buffer.position() + serializer.size());
+            }
+            @Override
+            public T decode(ByteBuffer buffer, T previousKey) {
+                T key = serializer.read(buffer, buffer.position());
+                buffer.position(buffer.position() + serializer.size());
+                return key;
+            }
+        };
+    }
+
+    //Writes an unsigned varint: 7 bits per byte, lowest first, with the top bit set on every byte but the last
+    static void writeVarLong(ByteBuffer buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    //Reads an unsigned varint written by writeVarLong
+    static long readVarLong(ByteBuffer buffer) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0)
+                return value;
+        }
+        throw new IllegalArgumentException("Error: Malformed varint!");
+    }
+}
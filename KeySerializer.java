@@ -0,0 +1,57 @@
+// Key serializer for the memory-mapped skip list set
+// Program created by Connor Cribley
+
+/*
+    DISCLAIMER: This program was created in its entirety by Connor Cribley. I do not authorize anybody to
+    replicate, alter, submit, or otherwise use this program in a way which violates the academic integrity of any
+    educational institution. Any attempt to use this code to commit academic plagiarism was done so without my
+    permission.
+*/
+
+
+import java.nio.ByteBuffer;
+
+/*
+Writes keys of type T into, and reads them back out of, a fixed number of bytes of a buffer. Every key must
+serialize to exactly size() bytes so that items can be stored as fixed-size records.
+*/
+public interface KeySerializer<T extends Comparable<T>> {
+
+    //Serializer for long keys (8 bytes), compared without reading them back into a Long
+    KeySerializer<Long> LONG = new KeySerializer<Long>() {
+        @Override
+        public int size() { return Long.BYTES; }
+        @Override
+        public void write(Long key, ByteBuffer buffer, int offset) { buffer.putLong(offset, key); }
+        @Override
+        public Long read(ByteBuffer buffer, int offset) { return buffer.getLong(offset); }
+        @Override
+        public int compare(ByteBuffer buffer, int offset, Long key) { return Long.compare(buffer.getLong(offset), key); }
+    };
+
+    //Serializer for int keys (4 bytes), compared without reading them back into an Integer
+    KeySerializer<Integer> INT = new KeySerializer<Integer>() {
+        @Override
+        public int size() { return Integer.BYTES; }
+        @Override
+        public void write(Integer key, ByteBuffer buffer, int offset) { buffer.putInt(offset, key); }
+        @Override
+        public Integer read(ByteBuffer buffer, int offset) { return buffer.getInt(offset); }
+        @Override
+        public int compare(ByteBuffer buffer, int offset, Integer key) { return Integer.compare(buffer.getInt(offset), key); }
+    };
+
+    //Number of bytes every key takes up
+    int size();
+
+    //Writes the key into the buffer starting at offset
+    void write(T key, ByteBuffer buffer, int offset);
+
+    //Reads the key starting at offset out of the buffer
+    T read(ByteBuffer buffer, int offset);
+
+    //Compares the key stored at offset with the given key. Override this to compare without reading the key back
+    default int compare(ByteBuffer buffer, int offset, T key) {
+        return read(buffer, offset).compareTo(key);
+    }
+}
@@ -0,0 +1,87 @@
+// Level generator for the skip list sets
+// Program created by Connor Cribley
+
+/*
+    DISCLAIMER: This program was created in its entirety by Connor Cribley. I do not authorize anybody to
+    replicate, alter, submit, or otherwise use this program in a way which violates the academic integrity of any
+    educational institution. Any attempt to use this code to commit academic plagiarism was done so without my
+    permission.
+*/
+
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+
+/*
+Decides how many levels above the bottom a new item gets. Each level should be reached with probability p of the
+one below it, so a skip list with p = 1/2 has half its items on level 1, a quarter on level 2 and so on. A smaller
+p gives shorter items (less memory) and longer rows to walk (slower searches).
+
+The generators here draw every level from a single random long: its trailing zeros are a run of coin flips, and
+taking k bits per level turns them into flips that come up heads with probability 1/2^k.
+*/
+public interface LevelGenerator {
+
+    //Generator with p = 1/2 that uses the calling thread's ThreadLocalRandom, so threads never share a seed
+    LevelGenerator DEFAULT = threadLocal(2);
+
+    //Returns the number of additional levels for a new item, between 0 and maxLevel
+    int nextLevel(int maxLevel);
+
+    //Returns p, the chance of an item reaching each level given that it reached the one below. Sets use this to
+    //tell when their levels have drifted away from what the generator gives
+    default double probability() {
+        return 0.5;
+    }
+
+    //Returns a generator with p = 1 / inverseProbability (2, 4, 8, ...) that uses the calling thread's
+    //ThreadLocalRandom. It can be shared by any number of sets and threads
+    static LevelGenerator threadLocal(int inverseProbability) {
+        int bitsPerLevel = bitsPerLevel(inverseProbability);
+        return new LevelGenerator() {
+            @Override
+            public int nextLevel(int maxLevel) {
+                return levelOf(ThreadLocalRandom.current().nextLong(), bitsPerLevel, maxLevel);
+            }
+            @Override
+            public double probability() {
+                return 1.0 / inverseProbability;
+            }
+        };
+    }
+
+    //Returns a generator with p = 1/2 that gives the same levels every time for the same seed, for reproducible
+    //tests and benchmarks. It must only be used by one thread at a time
+    static LevelGenerator seeded(long seed) {
+        return seeded(seed, 2);
+    }
+
+    //Returns a generator with p = 1 / inverseProbability that gives the same levels every time for the same seed.
+    //It must only be used by one thread at a time
+    static LevelGenerator seeded(long seed, int inverseProbability) {
+        int bitsPerLevel = bitsPerLevel(inverseProbability);
+        SplittableRandom random = new SplittableRandom(seed);
+        return new LevelGenerator() {
+            @Override
+            public int nextLevel(int maxLevel) {
+                return levelOf(random.nextLong(), bitsPerLevel, maxLevel);
+            }
+            @Override
+            public double probability() {
+                return 1.0 / inverseProbability;
+            }
+        };
+    }
+
+    //Turns a random long into a level: every bitsPerLevel trailing zeros is one more level
+    private static int levelOf(long random, int bitsPerLevel, int maxLevel) {
+        return Math.min(Long.numberOfTrailingZeros(random) / bitsPerLevel, maxLevel);
+    }
+
+    //Returns k for p = 1/2^k
+    private static int bitsPerLevel(int inverseProbability) {
+        if (inverseProbability < 2 || Integer.bitCount(inverseProbability) != 1)
+            throw new IllegalArgumentException("Error: inverseProbability must be a power of two greater than 1!");
+        return Integer.numberOfTrailingZeros(inverseProbability);
+    }
+}
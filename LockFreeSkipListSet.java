@@ -0,0 +1,534 @@
+// Genericized Lock-Free Skip List Set Collection
+// Program created by Connor Cribley
+
+/*
+    DISCLAIMER: This program was created in its entirety by Connor Cribley. I do not authorize anybody to
+    replicate, alter, submit, or otherwise use this program in a way which violates the academic integrity of any
+    educational institution. Any attempt to use this code to commit academic plagiarism was done so without my
+    permission.
+*/
+
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicMarkableReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+Thread-safe skip list class. Items are linked in with compare-and-set instead of being rewritten in place,
+and removal first marks an item's links (logical deletion) before unlinking it (physical deletion), so any
+number of threads can add, remove and search at the same time without locking.
+
+add, remove and contains are linearizable: an item is in the set from the moment its bottom link is set,
+and leaves it the moment its bottom link is marked. contains never writes and never retries. Iterators are
+weakly consistent: they never throw ConcurrentModificationException, return each item at most once, and
+reflect some (but not necessarily all) of the changes made after they were created. size() is only exact
+when no other thread is changing the set.
+
+subSet, headSet and tailSet return live range views of the same list. They hold no items of their own, are
+weakly consistent in the same way as the iterators, and count their size by walking their range.
+*/
+public class LockFreeSkipListSet<T extends Comparable<T>> extends AbstractSet<T> implements SortedSet<T> {
+
+    //Iterator class
+    class LockFreeSkipListSetIterator implements Iterator<T> {
+        //Item whose payload next() will return (tail when we are done)
+        SkipListSetItem<T> nextItem;
+        //Payload the iteration stops at, not included (null to run to the tail)
+        final T toElement;
+        //Payload returned by the last call to next(), for remove()
+        T lastPayload;
+
+        //Constructor
+        public LockFreeSkipListSetIterator() {
+            this(firstUnmarked(head), null);
+        }
+
+        //Constructor for iterating from startItem up to (but not including) toElement
+        LockFreeSkipListSetIterator(SkipListSetItem<T> startItem, T toElement) {
+            this.nextItem = startItem;
+            this.toElement = toElement;
+        }
+
+        //Returns false if we have reached the tail or the end of the range
+        @Override
+        public boolean hasNext() {
+            return nextItem != tail && (toElement == null || nextItem.payload.compareTo(toElement) < 0);
+        }
+
+        //Returns the payload of the current iteration, then moves to the next item that isn't deleted
+        @Override
+        public T next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            lastPayload = nextItem.payload;
+            nextItem = firstUnmarked(nextItem);
+            return lastPayload;
+        }
+
+        //Removes the last returned payload from the set (if no other thread already has)
+        @Override
+        public void remove() {
+            if (lastPayload == null)
+                throw new IllegalStateException();
+            LockFreeSkipListSet.this.remove(lastPayload);
+            lastPayload = null;
+        }
+    }
+
+    /*
+    Range view class. A view covers the payloads from fromElement (included) up to toElement (not included), where
+    a null bound means the view is unbounded on that side. Every method works on the list that created it, with
+    the same searches as the list itself, so the view is as thread safe as the list.
+    */
+    class LockFreeSubSet extends AbstractSet<T> implements SortedSet<T> {
+        //Bounds of the view
+        private final T fromElement;
+        private final T toElement;
+
+        //Constructor
+        LockFreeSubSet(T fromElement, T toElement) {
+            this.fromElement = fromElement;
+            this.toElement = toElement;
+        }
+
+        //Returns true if the payload is between the bounds of the view
+        private boolean inRange(T payload) {
+            return (fromElement == null || payload.compareTo(fromElement) >= 0)
+                && (toElement == null || payload.compareTo(toElement) < 0);
+        }
+
+        //Counts the items in the view by walking them, so like size() it's only exact when no other thread is
+        //changing the set
+        @Override
+        public int size() {
+            int count = 0;
+            for (Iterator<T> iterator = iterator(); iterator.hasNext(); iterator.next())
+                count++;
+            return count;
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return !iterator().hasNext();
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public boolean contains(Object o) {
+            T payload = (T) o;
+            return inRange(payload) && LockFreeSkipListSet.this.contains(payload);
+        }
+
+        //Returns a new weakly consistent iterator over the items in the view
+        @Override
+        public Iterator<T> iterator() {
+            SkipListSetItem<T> startItem = fromElement == null ? firstUnmarked(head) : ceilingItem(fromElement);
+            return new LockFreeSkipListSetIterator(startItem, toElement);
+        }
+
+        //Adds the payload to the list, if it's in the view's range
+        @Override
+        public boolean add(T e) {
+            if (!inRange(e))
+                throw new IllegalArgumentException("Error: Element is outside the range of this view!");
+            return LockFreeSkipListSet.this.add(e);
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public boolean remove(Object o) {
+            T payload = (T) o;
+            return inRange(payload) && LockFreeSkipListSet.this.remove(payload);
+        }
+
+        @Override
+        public Comparator<? super T> comparator() {
+            return null;
+        }
+
+        //Returns a view of the part of this view between the two bounds
+        @Override
+        public SortedSet<T> subSet(T fromElement, T toElement) {
+            if (fromElement.compareTo(toElement) > 0)
+                throw new IllegalArgumentException("Error: fromElement is greater than toElement!");
+            return nestedView(fromElement, toElement);
+        }
+
+        //Returns a view of the part of this view before toElement
+        @Override
+        public SortedSet<T> headSet(T toElement) {
+            return nestedView(null, Objects.requireNonNull(toElement));
+        }
+
+        //Returns a view of the part of this view from fromElement on
+        @Override
+        public SortedSet<T> tailSet(T fromElement) {
+            return nestedView(Objects.requireNonNull(fromElement), null);
+        }
+
+        //Returns the first item in the view (null if the view is empty)
+        @Override
+        public T first() {
+            Iterator<T> iterator = iterator();
+            return iterator.hasNext() ? iterator.next() : null;
+        }
+
+        //Returns the last item in the view (null if the view is empty)
+        @Override
+        public T last() {
+            T lastPayload = lastBefore(toElement);
+            return lastPayload == null || !inRange(lastPayload) ? null : lastPayload;
+        }
+
+        //Builds a view nested in this one, where a null bound means "same as this view". The upper bound isn't
+        //included, so it can be this view's own upper bound
+        private SortedSet<T> nestedView(T lowElement, T highElement) {
+            if (lowElement == null)
+                lowElement = fromElement;
+            else if (!inRange(lowElement))
+                throw new IllegalArgumentException("Error: Bound is outside the range of this view!");
+            if (highElement == null)
+                highElement = toElement;
+            else if (!inRange(highElement) && (toElement == null || highElement.compareTo(toElement) != 0))
+                throw new IllegalArgumentException("Error: Bound is outside the range of this view!");
+            return new LockFreeSubSet(lowElement, highElement);
+        }
+    }
+
+    //Item wrapper class. Each link carries a mark bit; a marked link means its item has been deleted
+    static final class SkipListSetItem<T> {
+        //Payload
+        final T payload;
+
+        //Links, one per level
+        final AtomicMarkableReference<SkipListSetItem<T>>[] next;
+
+        //Constructor
+        @SuppressWarnings("unchecked")
+        SkipListSetItem(T payload, int levels) {
+            this.payload = payload;
+            this.next = (AtomicMarkableReference<SkipListSetItem<T>>[]) new AtomicMarkableReference<?>[levels];
+        }
+
+        //Highest level this item is on
+        int getTopLevel() { return next.length - 1; }
+    }
+
+    //Maximum number of levels any item (including the head) can have
+    static final int MAX_LEVEL = 32;
+
+    //Head and tail sentinels
+    private final SkipListSetItem<T> head;
+    private final SkipListSetItem<T> tail;
+
+    //Highest level an item has been linked on. It only grows, searches start from it instead of MAX_LEVEL
+    private final AtomicInteger currentHeight = new AtomicInteger();
+
+    //Number of items in the list
+    private final LongAdder numItems = new LongAdder();
+
+    //Decides how many levels each new item gets. It is called by every thread that adds, so it has to be thread
+    //safe: the default thread-local generator is, a seeded one isn't
+    private final LevelGenerator levelGenerator;
+
+
+    //Constructors
+
+    //Builds a new, empty skip list
+    public LockFreeSkipListSet() {
+        this(LevelGenerator.DEFAULT);
+    }
+
+    //Builds a new, empty skip list whose items get their levels from the given generator, for example one with a
+    //lower probability to trade search speed for memory. A seeded generator only gives a reproducible shape if one
+    //thread at a time adds items
+    public LockFreeSkipListSet(LevelGenerator levelGenerator) {
+        this.levelGenerator = Objects.requireNonNull(levelGenerator);
+        head = new SkipListSetItem<T>(null, MAX_LEVEL);
+        tail = new SkipListSetItem<T>(null, MAX_LEVEL);
+        for (int level = 0; level < MAX_LEVEL; level++) {
+            head.next[level] = new AtomicMarkableReference<SkipListSetItem<T>>(tail, false);
+            tail.next[level] = new AtomicMarkableReference<SkipListSetItem<T>>(null, false);
+        }
+    }
+
+    //Builds a new skip list then adds all the items in c to it
+    public LockFreeSkipListSet(Collection<T> c) {
+        this();
+        addAll(c);
+    }
+
+    //Return the number of items in the skip list
+    @Override
+    public int size() {
+        long size = numItems.sum();
+        return size < 0 ? 0 : (int) Math.min(size, Integer.MAX_VALUE);
+    }
+
+    //Return true if the list is empty, false otherwise
+    @Override
+    public boolean isEmpty() {
+        return firstUnmarked(head) == tail;
+    }
+
+    //Returns true if the payload is in the list. Never writes and never retries
+    @Override
+    public boolean contains(Object o) {
+        //Type cast
+        @SuppressWarnings("unchecked")
+        T payload = (T) o;
+        //The item after where the search stopped on the bottom level is the only candidate
+        SkipListSetItem<T> currentItem = ceilingItem(payload);
+        return currentItem != tail && currentItem.payload.compareTo(payload) == 0;
+    }
+
+    //Returns the first item greater than or equal to payload that isn't deleted (tail if there is none). Like
+    //contains, it never writes and never retries
+    private SkipListSetItem<T> ceilingItem(T payload) {
+        boolean[] marked = { false };
+        SkipListSetItem<T> previousItem = head;
+        SkipListSetItem<T> currentItem = null;
+
+        for (int level = currentHeight.get(); level >= 0; level--) {
+            currentItem = previousItem.next[level].getReference();
+            while (true) {
+                //Step over deleted items without unlinking them
+                SkipListSetItem<T> nextItem = currentItem.next[level].get(marked);
+                while (marked[0]) {
+                    currentItem = nextItem;
+                    nextItem = currentItem.next[level].get(marked);
+                }
+                //Move right while the item is less than payload
+                if (currentItem != tail && currentItem.payload.compareTo(payload) < 0) {
+                    previousItem = currentItem;
+                    currentItem = nextItem;
+                }
+                else
+                    break;
+            }
+        }
+        return currentItem;
+    }
+
+    //Returns a new weakly consistent iterator
+    @Override
+    public Iterator<T> iterator() {
+        return new LockFreeSkipListSetIterator();
+    }
+
+    @Override
+    public boolean add(T e) {
+        if (e == null)
+            throw new NullPointerException();
+        //Randomly generate the highest level this item is on, and make sure searches start at least that high
+        int topLevel = calculateHeight();
+        raiseHeight(topLevel);
+
+        SkipListSetItem<T>[] predecessors = newItemArray();
+        SkipListSetItem<T>[] successors = newItemArray();
+
+        while (true) {
+            //If the item is already in the skip list, return false
+            if (find(e, predecessors, successors))
+                return false;
+
+            //Otherwise build the new item pointing at its successors on every level
+            SkipListSetItem<T> newItem = new SkipListSetItem<T>(e, topLevel + 1);
+            for (int level = 0; level <= topLevel; level++)
+                newItem.next[level] = new AtomicMarkableReference<SkipListSetItem<T>>(successors[level], false);
+
+            //Link it in on the bottom level. This is the point where it becomes part of the set
+            if (!predecessors[0].next[0].compareAndSet(successors[0], newItem, false, false))
+                continue;
+            numItems.increment();
+
+            //Then link it in on each of the upper levels, searching again whenever another thread gets in the way
+            build:
+            for (int level = 1; level <= topLevel; level++) {
+                while (!predecessors[level].next[level].compareAndSet(successors[level], newItem, false, false)) {
+                    find(e, predecessors, successors);
+                    //Stop building if the new item was removed while we were linking it
+                    if (successors[0] != newItem || newItem.next[level].isMarked())
+                        break build;
+                    //Point the new item at its new successor on this level before trying again
+                    SkipListSetItem<T> expected = newItem.next[level].getReference();
+                    if (expected != successors[level]
+                            && !newItem.next[level].compareAndSet(expected, successors[level], false, false))
+                        break build;
+                }
+            }
+            return true;
+        }
+    }
+
+    //Removes the payload from the list, if it exists
+    @Override
+    public boolean remove(Object o) {
+        //Type cast
+        @SuppressWarnings("unchecked")
+        T payload = (T) o;
+        SkipListSetItem<T>[] predecessors = newItemArray();
+        SkipListSetItem<T>[] successors = newItemArray();
+
+        //If the item we're looking for is not in the skip list, return false
+        if (!find(payload, predecessors, successors))
+            return false;
+        SkipListSetItem<T> victim = successors[0];
+
+        //Mark the upper levels, top down, so no new items get linked after it
+        for (int level = victim.getTopLevel(); level >= 1; level--) {
+            boolean[] marked = { false };
+            SkipListSetItem<T> nextItem = victim.next[level].get(marked);
+            while (!marked[0]) {
+                victim.next[level].compareAndSet(nextItem, nextItem, false, true);
+                nextItem = victim.next[level].get(marked);
+            }
+        }
+
+        //Mark the bottom level. The thread that manages to do this is the one that removed the item
+        boolean[] marked = { false };
+        SkipListSetItem<T> nextItem = victim.next[0].get(marked);
+        while (true) {
+            if (victim.next[0].compareAndSet(nextItem, nextItem, false, true)) {
+                numItems.decrement();
+                //Searching again unlinks the marked item on every level
+                find(payload, predecessors, successors);
+                return true;
+            }
+            nextItem = victim.next[0].get(marked);
+            if (marked[0])
+                return false;
+        }
+    }
+
+    @Override
+    public void clear() {
+        //Removing items one at a time keeps clear() safe to run alongside other threads
+        for (SkipListSetItem<T> item = firstUnmarked(head); item != tail; item = firstUnmarked(item))
+            remove(item.payload);
+    }
+
+    @Override
+    public Comparator<? super T> comparator() {
+        //This can just return null
+        return null;
+    }
+
+    //Returns a view of the items from fromElement up to (but not including) toElement
+    @Override
+    public SortedSet<T> subSet(T fromElement, T toElement) {
+        if (fromElement.compareTo(toElement) > 0)
+            throw new IllegalArgumentException("Error: fromElement is greater than toElement!");
+        return new LockFreeSubSet(fromElement, toElement);
+    }
+
+    //Returns a view of the items before toElement
+    @Override
+    public SortedSet<T> headSet(T toElement) {
+        return new LockFreeSubSet(null, Objects.requireNonNull(toElement));
+    }
+
+    //Returns a view of the items from fromElement on
+    @Override
+    public SortedSet<T> tailSet(T fromElement) {
+        return new LockFreeSubSet(Objects.requireNonNull(fromElement), null);
+    }
+
+    //Returns first item in list (null if the list is empty)
+    @Override
+    public T first() {
+        return firstUnmarked(head).payload;
+    }
+
+    //Returns last item in list (null if the list is empty)
+    @Override
+    public T last() {
+        return lastBefore(null);
+    }
+
+    //Returns the last payload less than bound (or the last payload, if bound is null) that isn't deleted, or null
+    //if there is none
+    private T lastBefore(T bound) {
+        //There are no backward links, so walk along the top of each level and drop down before the bound
+        T lastPayload = null;
+        SkipListSetItem<T> currentItem = head;
+        for (int level = currentHeight.get(); level >= 0; level--) {
+            SkipListSetItem<T> nextItem = currentItem.next[level].getReference();
+            while (nextItem != tail && (bound == null || nextItem.payload.compareTo(bound) < 0)) {
+                if (!nextItem.next[level].isMarked()) {
+                    currentItem = nextItem;
+                    if (!nextItem.next[0].isMarked())
+                        lastPayload = nextItem.payload;
+                }
+                nextItem = nextItem.next[level].getReference();
+            }
+        }
+        return lastPayload;
+    }
+
+    //Method to calculate the highest level of an item during insertion
+    public int calculateHeight() {
+        //The default generator draws all the levels from one ThreadLocalRandom number, so threads never share a seed
+        return levelGenerator.nextLevel(MAX_LEVEL - 1);
+    }
+
+    //Makes searches start at least at the given level
+    private void raiseHeight(int level) {
+        int height = currentHeight.get();
+        while (height < level && !currentHeight.compareAndSet(height, level))
+            height = currentHeight.get();
+    }
+
+    //Returns the first item after the given one on the bottom level that isn't deleted (tail if there is none)
+    private SkipListSetItem<T> firstUnmarked(SkipListSetItem<T> item) {
+        SkipListSetItem<T> currentItem = item.next[0].getReference();
+        while (currentItem != tail && currentItem.next[0].isMarked())
+            currentItem = currentItem.next[0].getReference();
+        return currentItem;
+    }
+
+    /*
+    Traverses the skip list, recording the last item before payload (predecessors) and the item after it
+    (successors) on every level up to the current height. Deleted items found along the way are unlinked, and
+    the search restarts from the head if another thread changes a link we are relying on. Returns true if the
+    payload is in the list, in which case successors[0] is its item.
+    */
+    private boolean find(T payload, SkipListSetItem<T>[] predecessors, SkipListSetItem<T>[] successors) {
+        boolean[] marked = { false };
+        retry:
+        while (true) {
+            SkipListSetItem<T> previousItem = head;
+            SkipListSetItem<T> currentItem = null;
+            for (int level = currentHeight.get(); level >= 0; level--) {
+                currentItem = previousItem.next[level].getReference();
+                while (true) {
+                    //Unlink any deleted items after previousItem on this level
+                    SkipListSetItem<T> nextItem = currentItem.next[level].get(marked);
+                    while (marked[0]) {
+                        if (!previousItem.next[level].compareAndSet(currentItem, nextItem, false, false))
+                            continue retry;
+                        currentItem = previousItem.next[level].getReference();
+                        nextItem = currentItem.next[level].get(marked);
+                    }
+                    //Move right while the item is less than payload
+                    if (currentItem != tail && currentItem.payload.compareTo(payload) < 0) {
+                        previousItem = currentItem;
+                        currentItem = nextItem;
+                    }
+                    else
+                        break;
+                }
+                predecessors[level] = previousItem;
+                successors[level] = currentItem;
+            }
+            return currentItem != tail && currentItem.payload.compareTo(payload) == 0;
+        }
+    }
+
+    //Allocates a per-call array of items, one slot per level
+    @SuppressWarnings("unchecked")
+    private SkipListSetItem<T>[] newItemArray() {
+        return (SkipListSetItem<T>[]) new SkipListSetItem<?>[MAX_LEVEL];
+    }
+}
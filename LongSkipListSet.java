@@ -0,0 +1,184 @@
+// Primitive long Skip List Set Collection
+// Program created by Connor Cribley
+
+/*
+    DISCLAIMER: This program was created in its entirety by Connor Cribley. I do not authorize anybody to
+    replicate, alter, submit, or otherwise use this program in a way which violates the academic integrity of any
+    educational institution. Any attempt to use this code to commit academic plagiarism was done so without my
+    permission.
+*/
+
+
+import java.util.*;
+
+/*
+Skip list class specialized for long keys. It uses the same algorithm as SkipListSet, but items are indexes
+into primitive arrays rather than objects (see PrimitiveSkipListSet, which holds the links and levels), and
+keys[i] is the key of item i. Keys are never boxed and comparisons are plain primitive comparisons.
+
+IntSkipListSet is this class with int keys. Only the code that touches keys is here, so a change to it has to be
+made in both.
+*/
+public class LongSkipListSet extends PrimitiveSkipListSet {
+
+    //Iterator class
+    class LongSkipListSetIterator implements PrimitiveIterator.OfLong {
+        //Iterator item
+        int currentItem;
+
+        //Constructor
+        public LongSkipListSetIterator() {
+            //The first item is the one directly after the head on the bottom level
+            currentItem = nextItem(HEAD);
+        }
+
+        //Returns false if we have reached the tail
+        @Override
+        public boolean hasNext() {
+            return currentItem != TAIL;
+        }
+
+        //Returns the key of the current iteration
+        @Override
+        public long nextLong() {
+            if (currentItem == TAIL)
+                throw new NoSuchElementException();
+            long key = keys[currentItem];
+            currentItem = nextItem(currentItem);
+            return key;
+        }
+    }
+
+    //Key of each item
+    private long[] keys;
+
+
+    //Constructors
+
+    //Builds a new, empty skip list
+    public LongSkipListSet() {
+        this(16);
+    }
+
+    //Builds a new, empty skip list whose items get their levels from the given generator
+    public LongSkipListSet(LevelGenerator levelGenerator) {
+        this(16, levelGenerator);
+    }
+
+    //Builds a new, empty skip list with room for the given number of keys before it has to grow
+    public LongSkipListSet(int initialCapacity) {
+        this(initialCapacity, LevelGenerator.DEFAULT);
+    }
+
+    //Builds a new, empty skip list with room for the given number of keys, whose items get their levels from the
+    //given generator
+    public LongSkipListSet(int initialCapacity, LevelGenerator levelGenerator) {
+        super(Math.max(initialCapacity, 2) + 2, levelGenerator);
+        keys = new long[previous.length];
+    }
+
+    //Builds a new skip list then adds all the keys in the array to it
+    public LongSkipListSet(long[] keys) {
+        this(keys.length);
+        for (long key : keys)
+            add(key);
+    }
+
+    //Returns true if the key is in the list
+    public boolean contains(long key) {
+        //Start at the head of the linked list, on the highest level in use
+        int currentItem = HEAD;
+
+        for (int level = currentHeight; level >= 0; level--) {
+            //While the next item in the row is less than key, and we are not at the end of the row
+            int nextItem = links[linkStart[currentItem] + level];
+            while (nextItem != TAIL && keys[nextItem] < key) {
+                currentItem = nextItem;
+                nextItem = links[linkStart[currentItem] + level];
+            }
+            //Stop as soon as we find it, on any level
+            if (nextItem != TAIL && keys[nextItem] == key)
+                return true;
+        }
+        return false;
+    }
+
+    //Returns a new iterator over the keys in ascending order
+    public PrimitiveIterator.OfLong iterator() {
+        return new LongSkipListSetIterator();
+    }
+
+    //Returns the keys in ascending order
+    public long[] toArray() {
+        long[] array = new long[numItems];
+        int i = 0;
+        for (int currentItem = nextItem(HEAD); currentItem != TAIL; currentItem = nextItem(currentItem))
+            array[i++] = keys[currentItem];
+        return array;
+    }
+
+    //Adds the key, returning false if it was already in the list
+    public boolean add(long key) {
+        //Find the items that go before the key on every level
+        int previousItem = findPredecessors(key);
+        int nextItem = nextItem(previousItem);
+        //If the key is already in the skip list, return false
+        if (nextItem != TAIL && keys[nextItem] == key)
+            return false;
+        //insertItem() may grow the key array, so it has to be called before keys is read
+        int newItem = insertItem(previousItem, nextItem);
+        keys[newItem] = key;
+        return true;
+    }
+
+    //Removes the key, returning false if it was not in the list
+    public boolean remove(long key) {
+        //Find the items before the key on every level
+        int previousItem = findPredecessors(key);
+        int currentItem = nextItem(previousItem);
+        //If the key is not in the skip list, return false
+        if (currentItem == TAIL || keys[currentItem] != key)
+            return false;
+        unlinkItem(currentItem, previousItem);
+        return true;
+    }
+
+    //Returns the smallest key
+    public long first() {
+        if (numItems == 0)
+            throw new NoSuchElementException();
+        return keys[nextItem(HEAD)];
+    }
+
+    //Returns the largest key
+    public long last() {
+        if (numItems == 0)
+            throw new NoSuchElementException();
+        return keys[previous[TAIL]];
+    }
+
+    //Grows the key array along with the rest of the item storage
+    @Override
+    void growKeys(int capacity) {
+        keys = Arrays.copyOf(keys, capacity);
+    }
+
+    //Traverses the skip list, recording in update the last item strictly before key on each level in use.
+    //Returns that item on the bottom level
+    private int findPredecessors(long key) {
+        //Start at the head of the linked list, on the highest level in use
+        int currentItem = HEAD;
+
+        for (int level = currentHeight; level >= 0; level--) {
+            //While the next item in the row is less than key, and we are not at the end of the row
+            int nextItem = links[linkStart[currentItem] + level];
+            while (nextItem != TAIL && keys[nextItem] < key) {
+                currentItem = nextItem;
+                nextItem = links[linkStart[currentItem] + level];
+            }
+            //Remember where we dropped down
+            update[level] = currentItem;
+        }
+        return currentItem;
+    }
+}
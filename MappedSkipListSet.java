@@ -0,0 +1,659 @@
+// Memory-Mapped Skip List Set Collection
+// Program created by Connor Cribley
+
+/*
+    DISCLAIMER: This program was created in its entirety by Connor Cribley. I do not authorize anybody to
+    replicate, alter, submit, or otherwise use this program in a way which violates the academic integrity of any
+    educational institution. Any attempt to use this code to commit academic plagiarism was done so without my
+    permission.
+*/
+
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/*
+Skip list class whose items live in a memory-mapped file instead of on the Java heap. Every item is a record whose
+size depends on its number of levels, and links are byte offsets of records in the file rather than references:
+
+    levels (int) | previous (long) | key (serializer.size() bytes) | next (long * levels)
+
+Offsets are longs, and the file is mapped in segments of 1GB (a single mapping can't go past 2GB), so the file
+can grow as far as the disk allows. A record never crosses from one segment into the next.
+
+The file starts with a header holding the list's bookkeeping, so opening an existing file reads the header and
+is ready straight away, without rebuilding the list. Changes are written to the mapping as they happen; call
+force() (or close()) to make sure they have reached the disk. Removed records go on a free list for their number
+of levels and are reused by the next item with that many.
+
+Each change is written in an order that keeps the bottom level a valid sorted list at every point: a new record is
+filled in before anything links to it, and is linked into the bottom level first; a removed record is unlinked
+from the bottom level last. The header is marked while the file is open and unmarked by close(), so a file that
+wasn't closed (the program crashed part way through a change) is repaired when it is next opened, by rebuilding
+the upper levels, the previous links and the counts from the bottom level. A record being added or removed at
+the time of the crash may be left unused, which only costs its space.
+*/
+public class MappedSkipListSet<T extends Comparable<T>> extends AbstractSet<T> implements SortedSet<T>, Closeable {
+
+    //Iterator class
+    class MappedSkipListSetIterator implements Iterator<T> {
+        //Iterator item
+        long currentItem;
+        //Key the iteration stops at, not included (null to run to the tail)
+        final T toElement;
+        //Key returned by the last call to next(), for remove()
+        T lastPayload;
+
+        //Constructor
+        public MappedSkipListSetIterator() {
+            //The first item is the one directly after the head on the bottom level
+            this(getNext(head, 0), null);
+        }
+
+        //Constructor for iterating from startItem up to (but not including) toElement
+        MappedSkipListSetIterator(long startItem, T toElement) {
+            this.currentItem = startItem;
+            this.toElement = toElement;
+        }
+
+        //Returns false if we have reached the tail or the end of the range
+        @Override
+        public boolean hasNext() {
+            return currentItem != tail && (toElement == null || compare(currentItem, toElement) < 0);
+        }
+
+        //Reads the key of the current iteration
+        @Override
+        public T next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            lastPayload = getPayload(currentItem);
+            currentItem = getNext(currentItem, 0);
+            return lastPayload;
+        }
+
+        //Removes the key returned last. The iterator has already moved on to the next record, which stays where it is
+        @Override
+        public void remove() {
+            if (lastPayload == null)
+                throw new IllegalStateException("Error: No item to remove!");
+            MappedSkipListSet.this.remove(lastPayload);
+            lastPayload = null;
+        }
+    }
+
+    /*
+    Range view class. A view covers the keys from fromElement (included) up to toElement (not included), where a
+    null bound means the view is unbounded on that side. It holds nothing of its own: every method works on the
+    file of the list that created it, finding either end of the range with one search. size() walks the range,
+    since records don't keep the spans that would let it count them faster.
+    */
+    class MappedSubSet extends AbstractSet<T> implements SortedSet<T> {
+        //Bounds of the view
+        private final T fromElement;
+        private final T toElement;
+
+        //Constructor
+        MappedSubSet(T fromElement, T toElement) {
+            this.fromElement = fromElement;
+            this.toElement = toElement;
+        }
+
+        //Returns true if the key is between the bounds of the view
+        private boolean inRange(T payload) {
+            return (fromElement == null || payload.compareTo(fromElement) >= 0)
+                && (toElement == null || payload.compareTo(toElement) < 0);
+        }
+
+        //Returns the lowest record in the view (or one outside it, if the view is empty)
+        private long lowestItem() {
+            return fromElement == null ? getNext(head, 0) : getNext(findPredecessors(fromElement), 0);
+        }
+
+        @Override
+        public int size() {
+            int count = 0;
+            for (Iterator<T> iterator = iterator(); iterator.hasNext(); iterator.next())
+                count++;
+            return count;
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return !iterator().hasNext();
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public boolean contains(Object o) {
+            T payload = (T) o;
+            return inRange(payload) && MappedSkipListSet.this.contains(payload);
+        }
+
+        @Override
+        public Iterator<T> iterator() {
+            return new MappedSkipListSetIterator(lowestItem(), toElement);
+        }
+
+        //Adds the key to the list, if it's in the view's range
+        @Override
+        public boolean add(T e) {
+            if (!inRange(e))
+                throw new IllegalArgumentException("Error: Element is outside the range of this view!");
+            return MappedSkipListSet.this.add(e);
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public boolean remove(Object o) {
+            T payload = (T) o;
+            return inRange(payload) && MappedSkipListSet.this.remove(payload);
+        }
+
+        @Override
+        public Comparator<? super T> comparator() {
+            return null;
+        }
+
+        //Returns a view of the part of this view between the two bounds
+        @Override
+        public SortedSet<T> subSet(T fromElement, T toElement) {
+            if (fromElement.compareTo(toElement) > 0)
+                throw new IllegalArgumentException("Error: fromElement is greater than toElement!");
+            return nestedView(fromElement, toElement);
+        }
+
+        //Returns a view of the part of this view before toElement
+        @Override
+        public SortedSet<T> headSet(T toElement) {
+            return nestedView(null, Objects.requireNonNull(toElement));
+        }
+
+        //Returns a view of the part of this view from fromElement on
+        @Override
+        public SortedSet<T> tailSet(T fromElement) {
+            return nestedView(Objects.requireNonNull(fromElement), null);
+        }
+
+        //Returns the first key in the view (null if the view is empty)
+        @Override
+        public T first() {
+            long firstItem = lowestItem();
+            if (firstItem == tail)
+                return null;
+            T payload = getPayload(firstItem);
+            return inRange(payload) ? payload : null;
+        }
+
+        //Returns the last key in the view (null if the view is empty)
+        @Override
+        public T last() {
+            long lastItem = toElement == null ? getLong(tail + PREVIOUS) : findPredecessors(toElement);
+            if (lastItem == head)
+                return null;
+            T payload = getPayload(lastItem);
+            return inRange(payload) ? payload : null;
+        }
+
+        //Builds a view nested in this one, where a null bound means "same as this view". The upper bound isn't
+        //included, so it can be this view's own upper bound
+        private SortedSet<T> nestedView(T lowElement, T highElement) {
+            if (lowElement == null)
+                lowElement = fromElement;
+            else if (!inRange(lowElement))
+                throw new IllegalArgumentException("Error: Bound is outside the range of this view!");
+            if (highElement == null)
+                highElement = toElement;
+            else if (!inRange(highElement) && (toElement == null || highElement.compareTo(toElement) != 0))
+                throw new IllegalArgumentException("Error: Bound is outside the range of this view!");
+            return new MappedSubSet(lowElement, highElement);
+        }
+    }
+
+    //Default number of levels the tallest record can have
+    static final int DEFAULT_MAX_LEVEL = 20;
+
+    //Each mapped segment is 2^segmentShift bytes, 2^DEFAULT_SEGMENT_SHIFT unless a test asks for smaller ones
+    static final int DEFAULT_SEGMENT_SHIFT = 30;
+
+    //Header layout. The free lists (one per number of levels) take up the rest of the header
+    private static final int MAGIC = 0x534b4c53; //"SKLS"
+    private static final int FORMAT_VERSION = 2;
+    private static final int MAGIC_OFFSET = 0;
+    private static final int VERSION_OFFSET = 4;
+    private static final int KEY_SIZE_OFFSET = 8;
+    private static final int MAX_LEVEL_OFFSET = 12;
+    private static final int NUM_ITEMS_OFFSET = 16;
+    private static final int CURRENT_HEIGHT_OFFSET = 24;
+    private static final int OPEN_OFFSET = 28;
+    private static final int END_OFFSET = 32;
+    private static final int FREE_LISTS_OFFSET = 40;
+
+    //Record layout (the links start after the key)
+    private static final int LEVELS = 0;
+    private static final int PREVIOUS = 4;
+    private static final int KEY = 12;
+
+    //Marks the end of a free list
+    private static final long NONE = 0;
+
+    //File and its mapping, one buffer per segment
+    private final FileChannel channel;
+    private final int segmentShift;
+    private final long segmentSize;
+    private final long segmentMask;
+    private MappedByteBuffer[] segments;
+    private long mappedSize;
+
+    //Key serializer
+    private final KeySerializer<T> serializer;
+
+    //Record layout for this file
+    private final int maxLevel; //number of levels of the tallest record (the head)
+    private final int nextOffset; //where the links start in a record
+    private final int headerSize; //size of the header, rounded up to 64 bytes
+
+    //Offsets of the head and tail sentinel records (package-private, like the record accessors, so tests can walk
+    //the levels)
+    final long head;
+    final long tail;
+
+    //Scratch array holding the last item before the search position on each level (reused by add/remove)
+    private final long[] update;
+
+    //Decides how many levels each new item gets
+    private final LevelGenerator levelGenerator;
+
+
+    //Constructors
+
+    //Opens the skip list stored in the file, creating an empty one if the file doesn't exist
+    public MappedSkipListSet(Path file, KeySerializer<T> serializer) throws IOException {
+        this(file, serializer, DEFAULT_MAX_LEVEL);
+    }
+
+    //Opens the skip list stored in the file, creating an empty one if the file doesn't exist. New items get their
+    //levels from the given generator
+    public MappedSkipListSet(Path file, KeySerializer<T> serializer, LevelGenerator levelGenerator) throws IOException {
+        this(file, serializer, DEFAULT_MAX_LEVEL, levelGenerator);
+    }
+
+    //Opens the skip list stored in the file, creating an empty one whose records can have up to maxLevel levels if
+    //the file doesn't exist. An existing file keeps the maximum it was created with
+    public MappedSkipListSet(Path file, KeySerializer<T> serializer, int maxLevel) throws IOException {
+        this(file, serializer, maxLevel, LevelGenerator.DEFAULT);
+    }
+
+    //Opens the skip list stored in the file as above, with new items getting their levels from the given generator
+    public MappedSkipListSet(Path file, KeySerializer<T> serializer, int maxLevel, LevelGenerator levelGenerator) throws IOException {
+        this(file, serializer, maxLevel, levelGenerator, DEFAULT_SEGMENT_SHIFT);
+    }
+
+    //Opens the skip list stored in the file as above, mapping it in segments of 2^segmentShift bytes so tests can
+    //make records meet segment boundaries without a huge file. The segment size isn't kept in the header, so a file
+    //has to be opened with the segment size it was created with
+    MappedSkipListSet(Path file, KeySerializer<T> serializer, int maxLevel, LevelGenerator levelGenerator, int segmentShift) throws IOException {
+        if (segmentShift < 1 || segmentShift > DEFAULT_SEGMENT_SHIFT)
+            throw new IllegalArgumentException("Error: segmentShift must be between 1 and " + DEFAULT_SEGMENT_SHIFT + "!");
+        this.serializer = serializer;
+        this.segmentShift = segmentShift;
+        segmentSize = 1L << segmentShift;
+        segmentMask = segmentSize - 1;
+        this.levelGenerator = Objects.requireNonNull(levelGenerator);
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            boolean newFile = channel.size() == 0;
+            if (newFile) {
+                if (maxLevel < 1 || maxLevel > 64)
+                    throw new IllegalArgumentException("Error: maxLevel must be between 1 and 64!");
+                this.maxLevel = maxLevel;
+            }
+            else {
+                //Read the layout of an existing file from its header
+                if (channel.size() < FREE_LISTS_OFFSET)
+                    throw new IOException("Error: " + file + " is not a skip list file!");
+                remap(channel.size());
+                if (getInt(MAGIC_OFFSET) != MAGIC)
+                    throw new IOException("Error: " + file + " is not a skip list file!");
+                if (getInt(VERSION_OFFSET) != FORMAT_VERSION)
+                    throw new IOException("Error: " + file + " has unsupported format version " + getInt(VERSION_OFFSET) + "!");
+                if (getInt(KEY_SIZE_OFFSET) != serializer.size())
+                    throw new IOException("Error: " + file + " holds " + getInt(KEY_SIZE_OFFSET) + "-byte keys, serializer writes " + serializer.size() + "!");
+                this.maxLevel = getInt(MAX_LEVEL_OFFSET);
+            }
+            nextOffset = KEY + serializer.size();
+            headerSize = (FREE_LISTS_OFFSET + 8 * this.maxLevel + 63) / 64 * 64;
+            head = headerSize;
+            tail = head + recordSize(this.maxLevel);
+            update = new long[this.maxLevel];
+            //The header, the head and the tail all go in the first segment
+            if (tail + recordSize(0) > segmentSize)
+                throw new IllegalArgumentException("Error: Segments of " + segmentSize + " bytes are too small for the head record!");
+
+            //A new file gets a header and empty head/tail records
+            if (newFile) {
+                remap(tail + recordSize(0) + 64L * recordSize(2));
+                putInt(MAGIC_OFFSET, MAGIC);
+                putInt(VERSION_OFFSET, FORMAT_VERSION);
+                putInt(KEY_SIZE_OFFSET, serializer.size());
+                putInt(MAX_LEVEL_OFFSET, this.maxLevel);
+                clear();
+            }
+            //A file that is still marked open wasn't closed, and may have been left part way through a change
+            else if (getInt(OPEN_OFFSET) != 0)
+                recover();
+            putInt(OPEN_OFFSET, 1);
+        }
+        catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    //Return the number of items in the skip list
+    @Override
+    public int size() {
+        return (int) Math.min(getLong(NUM_ITEMS_OFFSET), Integer.MAX_VALUE);
+    }
+
+    //Return true if the list is empty, false otherwise
+    @Override
+    public boolean isEmpty() {
+        return getLong(NUM_ITEMS_OFFSET) == 0;
+    }
+
+    //Can suppress unchecked cast warning
+    @Override
+    public boolean contains(Object o) {
+        //Type cast
+        @SuppressWarnings("unchecked")
+        T payload = (T) o;
+        //find the item before it, then check whether the next one is it
+        long nextItem = getNext(findPredecessors(payload), 0);
+        return nextItem != tail && compare(nextItem, payload) == 0;
+    }
+
+    //Returns a new iterator
+    @Override
+    public Iterator<T> iterator() {
+        return new MappedSkipListSetIterator();
+    }
+
+    @Override
+    public boolean add(T e) {
+        if (e == null)
+            throw new NullPointerException();
+        //Find the items that go before the item we want to insert on every level
+        long previousItem = findPredecessors(e);
+        long nextItem = getNext(previousItem, 0);
+        //If the item is already in the skip list, return false
+        if (nextItem != tail && compare(nextItem, e) == 0)
+            return false;
+        //Randomly generate the number of additional levels this item has
+        int height = calculateHeight();
+        int currentHeight = getCurrentHeight();
+        //If the item is taller than the list, the levels above the current height start at the head
+        for (int level = currentHeight + 1; level <= height; level++)
+            update[level] = head;
+
+        //Create the new record and fill it in before anything links to it. Allocating may grow (and so remap) the
+        //file, which leaves offsets unchanged
+        long newItem = allocateItem(height + 1);
+        putInt(newItem + LEVELS, height + 1);
+        putLong(newItem + PREVIOUS, previousItem);
+        serializer.write(e, segment(newItem), index(newItem) + KEY);
+        for (int level = 0; level <= height; level++)
+            setNext(newItem, level, getNext(update[level], level));
+        //Link it in from the bottom level up, so a search only ever meets it where it is fully linked below. Only
+        //the bottom level is doubly linked
+        for (int level = 0; level <= height; level++)
+            setNext(update[level], level, newItem);
+        putLong(nextItem + PREVIOUS, newItem);
+
+        //The links above the old height were the head's links to the tail until now, so raising it comes last
+        if (height > currentHeight)
+            putInt(CURRENT_HEIGHT_OFFSET, height);
+        //increment the number of items in the list
+        putLong(NUM_ITEMS_OFFSET, getLong(NUM_ITEMS_OFFSET) + 1);
+        return true;
+    }
+
+    //Can suppress unchecked cast warning
+    @Override
+    public boolean remove(Object o) {
+        //Type cast
+        @SuppressWarnings("unchecked")
+        T payload = (T) o;
+        //find the items before the item we wish to delete on every level
+        long previousItem = findPredecessors(payload);
+        long currentItem = getNext(previousItem, 0);
+        //If the item we're looking for is not in the skip list, return false
+        if (currentItem == tail || compare(currentItem, payload) != 0)
+            return false;
+
+        //Delete the item as we would in a linked list, from its top level down, so the bottom level goes last
+        int levels = getLevels(currentItem);
+        for (int level = levels - 1; level >= 0; level--)
+            setNext(update[level], level, getNext(currentItem, level));
+        putLong(getNext(currentItem, 0) + PREVIOUS, previousItem);
+
+        //Put the record on the free list for its number of levels
+        long freeList = FREE_LISTS_OFFSET + 8L * (levels - 1);
+        putLong(currentItem + PREVIOUS, getLong(freeList));
+        putLong(freeList, currentItem);
+
+        //Decrement the number of items in the list
+        putLong(NUM_ITEMS_OFFSET, getLong(NUM_ITEMS_OFFSET) - 1);
+
+        //If there are empty levels at the top of our skip list, we stop searching them
+        int currentHeight = getCurrentHeight();
+        while (currentHeight > 0 && getNext(head, currentHeight) == tail)
+            currentHeight--;
+        putInt(CURRENT_HEIGHT_OFFSET, currentHeight);
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        //Only the head and tail records are kept; the file keeps its size
+        putInt(head + LEVELS, maxLevel);
+        putLong(head + PREVIOUS, NONE);
+        for (int level = 0; level < maxLevel; level++)
+            setNext(head, level, tail);
+        putInt(tail + LEVELS, 0);
+        putLong(tail + PREVIOUS, head);
+
+        putLong(NUM_ITEMS_OFFSET, 0);
+        putInt(CURRENT_HEIGHT_OFFSET, 0);
+        putLong(END_OFFSET, tail + recordSize(0));
+        for (int levels = 1; levels <= maxLevel; levels++)
+            putLong(FREE_LISTS_OFFSET + 8L * (levels - 1), NONE);
+    }
+
+    @Override
+    public Comparator<? super T> comparator() {
+        //This can just return null
+        return null;
+    }
+
+    //Returns a view of the keys from fromElement up to (but not including) toElement
+    @Override
+    public SortedSet<T> subSet(T fromElement, T toElement) {
+        if (fromElement.compareTo(toElement) > 0)
+            throw new IllegalArgumentException("Error: fromElement is greater than toElement!");
+        return new MappedSubSet(fromElement, toElement);
+    }
+
+    //Returns a view of the keys before toElement
+    @Override
+    public SortedSet<T> headSet(T toElement) {
+        return new MappedSubSet(null, Objects.requireNonNull(toElement));
+    }
+
+    //Returns a view of the keys from fromElement on
+    @Override
+    public SortedSet<T> tailSet(T fromElement) {
+        return new MappedSubSet(Objects.requireNonNull(fromElement), null);
+    }
+
+    //Returns first item in list (null if the list is empty)
+    @Override
+    public T first() {
+        long firstItem = getNext(head, 0);
+        return firstItem == tail ? null : getPayload(firstItem);
+    }
+
+    //Returns last item in list (null if the list is empty)
+    @Override
+    public T last() {
+        long lastItem = getLong(tail + PREVIOUS);
+        return lastItem == head ? null : getPayload(lastItem);
+    }
+
+    //Method to calculate what the additional height of each item should be during insertion
+    public int calculateHeight() {
+        //The generator draws all the levels from one random number. It is capped at one more level than the list
+        //has and at the number of levels of the head
+        return levelGenerator.nextLevel(Math.min(getCurrentHeight() + 1, maxLevel - 1));
+    }
+
+    //Writes any changes still in memory to the file
+    public void force() {
+        for (MappedByteBuffer segment : segments)
+            segment.force();
+    }
+
+    //Writes any changes to the file, marks it as closed properly and closes it
+    @Override
+    public void close() throws IOException {
+        force();
+        putInt(OPEN_OFFSET, 0);
+        segments[0].force();
+        channel.close();
+    }
+
+    //Buffer and position within it of a file offset
+    private MappedByteBuffer segment(long offset) { return segments[(int) (offset >>> segmentShift)]; }
+    private int index(long offset) { return (int) (offset & segmentMask); }
+
+    //File accessors. Every change to the file other than a key goes through putInt and putLong, which are
+    //package-private so a test can stop a change part way through, as a crash would
+    private int getInt(long offset) { return segment(offset).getInt(index(offset)); }
+    void putInt(long offset, int value) { segment(offset).putInt(index(offset), value); }
+    private long getLong(long offset) { return segment(offset).getLong(index(offset)); }
+    void putLong(long offset, long value) { segment(offset).putLong(index(offset), value); }
+
+    //Record accessors (the first two package-private so tests can walk the levels)
+    int getLevels(long item) { return getInt(item + LEVELS); }
+    long getNext(long item, int level) { return getLong(item + nextOffset + 8L * level); }
+    private void setNext(long item, int level, long next) { putLong(item + nextOffset + 8L * level, next); }
+    private int getCurrentHeight() { return getInt(CURRENT_HEIGHT_OFFSET); }
+    private T getPayload(long item) { return serializer.read(segment(item), index(item) + KEY); }
+    private int compare(long item, T payload) { return serializer.compare(segment(item), index(item) + KEY, payload); }
+
+    //Number of bytes a record with the given number of levels takes up
+    private int recordSize(int levels) {
+        return nextOffset + 8 * levels;
+    }
+
+    //Traverses the skip list, recording in update the last item strictly before payload on each level in use.
+    //Returns that item on the bottom level
+    private long findPredecessors(T payload) {
+        //Start at the head of the linked list, on the highest level in use
+        long currentItem = head;
+
+        for (int level = getCurrentHeight(); level >= 0; level--) {
+            //While the next item in the row is less than payload, and we are not at the end of the row
+            long nextItem = getNext(currentItem, level);
+            while (nextItem != tail && compare(nextItem, payload) < 0) {
+                currentItem = nextItem;
+                nextItem = getNext(currentItem, level);
+            }
+            //Remember where we dropped down
+            update[level] = currentItem;
+        }
+        return currentItem;
+    }
+
+    //Returns the offset of an unused record with the given number of levels, reusing a free one if there is one
+    //and growing the file if not
+    private long allocateItem(int levels) {
+        long freeList = FREE_LISTS_OFFSET + 8L * (levels - 1);
+        long item = getLong(freeList);
+        if (item != NONE) {
+            putLong(freeList, getLong(item + PREVIOUS));
+            return item;
+        }
+        int size = recordSize(levels);
+        item = getLong(END_OFFSET);
+        //A record that would cross into the next segment starts at the beginning of it instead
+        if (index(item) + size > segmentSize)
+            item = (item | segmentMask) + 1;
+        if (item + size > mappedSize) {
+            //Double the file until it fills a segment, then add a segment at a time
+            long newSize = mappedSize;
+            while (newSize < item + size)
+                newSize = newSize < segmentSize ? Math.min(2 * newSize, segmentSize) : newSize + segmentSize;
+            try {
+                remap(newSize);
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        putLong(END_OFFSET, item + size);
+        return item;
+    }
+
+    //Maps the first size bytes of the file, growing it if it is smaller. Segments that are already mapped in full
+    //are kept, so growing only maps the new part: the last segment again if it was short, and the ones after it.
+    //The mappings all share the file's pages, so nothing has to be written out first (see force())
+    private void remap(long size) throws IOException {
+        int segmentCount = (int) ((size + segmentMask) >>> segmentShift);
+        int firstNew = 0;
+        if (segments != null) {
+            firstNew = segments.length;
+            if (firstNew > 0 && segments[firstNew - 1].capacity() < segmentSize)
+                firstNew--;
+        }
+        MappedByteBuffer[] newSegments = segments == null ? new MappedByteBuffer[segmentCount] : Arrays.copyOf(segments, segmentCount);
+        for (int i = firstNew; i < segmentCount; i++) {
+            long start = (long) i << segmentShift;
+            newSegments[i] = channel.map(FileChannel.MapMode.READ_WRITE, start, Math.min(segmentSize, size - start));
+        }
+        segments = newSegments;
+        mappedSize = size;
+    }
+
+    //Repairs a file that wasn't closed. The bottom level is always a valid list, so everything else is rebuilt from
+    //it: the upper levels (each record keeps its number of levels), the previous links, the height and the count
+    private void recover() {
+        long[] lastItems = new long[maxLevel];
+        Arrays.fill(lastItems, head);
+        long numItems = 0;
+        int currentHeight = 0;
+        long previousItem = head;
+        for (long item = getNext(head, 0); item != tail; item = getNext(item, 0)) {
+            putLong(item + PREVIOUS, previousItem);
+            int levels = getLevels(item);
+            for (int level = 1; level < levels; level++) {
+                setNext(lastItems[level], level, item);
+                lastItems[level] = item;
+            }
+            currentHeight = Math.max(currentHeight, levels - 1);
+            previousItem = item;
+            numItems++;
+        }
+        putLong(tail + PREVIOUS, previousItem);
+        for (int level = 1; level < maxLevel; level++)
+            setNext(lastItems[level], level, tail);
+        putInt(CURRENT_HEIGHT_OFFSET, currentHeight);
+        putLong(NUM_ITEMS_OFFSET, numItems);
+    }
+}
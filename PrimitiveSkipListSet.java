@@ -0,0 +1,188 @@
+// Primitive Skip List Set base
+// Program created by Connor Cribley
+
+/*
+    DISCLAIMER: This program was created in its entirety by Connor Cribley. I do not authorize anybody to
+    replicate, alter, submit, or otherwise use this program in a way which violates the academic integrity of any
+    educational institution. Any attempt to use this code to commit academic plagiarism was done so without my
+    permission.
+*/
+
+
+import java.util.*;
+
+/*
+Link structure shared by LongSkipListSet and IntSkipListSet. Items are indexes into primitive arrays rather than
+objects: the forward links of item i are links[linkStart[i]] up to links[linkStart[i] + levels[i] - 1], and
+previous[i] is the item before it on the bottom level. Removed items are kept on a free list per number of levels
+and reused by later inserts.
+
+Everything that doesn't depend on the key type is here: allocating items, linking and unlinking them, and the
+levels. Each subclass only keeps its own key array and the loops that compare keys (searching and the add/remove
+wrappers around them), which have to be written once per key type for the comparisons to stay primitive.
+*/
+abstract class PrimitiveSkipListSet {
+
+    //Maximum number of levels any item (including the head) can have
+    static final int MAX_LEVEL = 32;
+
+    //Indexes of the head and tail sentinels. The head has MAX_LEVEL links, the tail has none
+    static final int HEAD = 0;
+    static final int TAIL = 1;
+
+    //Marks the end of a free list
+    private static final int NONE = -1;
+
+    //Item storage, indexed by item (the keys are kept by the subclass)
+    int[] previous; //previous item on the bottom level (next free item while on a free list)
+    int[] linkStart; //where each item's forward links start in links
+    private byte[] levels; //number of forward links of each item
+    private int itemCount; //number of item slots handed out, including the sentinels and free items
+
+    //Forward links of every item, stored back to back
+    int[] links;
+    private int linkCount; //number of link slots handed out
+
+    //First free item with a given number of levels
+    private final int[] freeItems = new int[MAX_LEVEL + 1];
+
+    //Scratch array holding the last item before the search position on each level (reused by add/remove)
+    final int[] update = new int[MAX_LEVEL];
+
+    //Decides how many levels each new item gets
+    private final LevelGenerator levelGenerator;
+
+    //Other data types
+    int currentHeight; //current height of the skip list (highest level in use above the bottom)
+    int numItems; //number of items in the list
+
+
+    //Constructor. Makes room for the given number of items (including the sentinels); the subclass makes its key
+    //array the same size
+    PrimitiveSkipListSet(int capacity, LevelGenerator levelGenerator) {
+        this.levelGenerator = Objects.requireNonNull(levelGenerator);
+        previous = new int[capacity];
+        linkStart = new int[capacity];
+        levels = new byte[capacity];
+        //On average each item has two links
+        links = new int[Math.max(2 * capacity, 2 * MAX_LEVEL)];
+        clear();
+    }
+
+    //Return the number of keys in the skip list
+    public int size() {
+        return numItems;
+    }
+
+    //Return true if the list is empty, false otherwise
+    public boolean isEmpty() {
+        return (numItems == 0);
+    }
+
+    //Removes every key, keeping the storage that has already been allocated
+    public void clear() {
+        //The head takes the first MAX_LEVEL links, and every level of it points at the tail
+        itemCount = 2;
+        linkCount = MAX_LEVEL;
+        linkStart[HEAD] = 0;
+        levels[HEAD] = MAX_LEVEL;
+        linkStart[TAIL] = MAX_LEVEL;
+        levels[TAIL] = 0;
+        Arrays.fill(links, 0, MAX_LEVEL, TAIL);
+        previous[TAIL] = HEAD;
+        Arrays.fill(freeItems, NONE);
+
+        numItems = 0;
+        currentHeight = 0;
+    }
+
+    //Method to calculate what the additional height of each item should be during insertion
+    public int calculateHeight() {
+        //The generator draws all the levels from one random number. It is capped at one more level than the list
+        //has, so one lucky item can't make every search start far above the rest
+        return levelGenerator.nextLevel(Math.min(currentHeight + 1, MAX_LEVEL - 1));
+    }
+
+    //Grows the subclass's key array to the given number of items
+    abstract void growKeys(int capacity);
+
+    //Returns the item after the given one on the bottom level
+    final int nextItem(int item) {
+        return links[linkStart[item]];
+    }
+
+    //Makes a new item with a random height and links it in between previousItem and nextItem, given the items
+    //before it on every level in update. Returns the new item, for the subclass to store its key in
+    final int insertItem(int previousItem, int nextItem) {
+        //Randomly generate the number of additional levels this item has
+        int height = calculateHeight();
+        //If the item is taller than the list, the levels above the current height start at the head
+        while (currentHeight < height) {
+            currentHeight++;
+            update[currentHeight] = HEAD;
+        }
+        //Create the new item, then insert it as we would in a linked list, once on each of its levels
+        int newItem = allocateItem(height + 1);
+        int newLinks = linkStart[newItem];
+        for (int level = 0; level <= height; level++) {
+            int updateLink = linkStart[update[level]] + level;
+            links[newLinks + level] = links[updateLink];
+            links[updateLink] = newItem;
+        }
+        //Only the bottom level is doubly linked
+        previous[newItem] = previousItem;
+        previous[nextItem] = newItem;
+
+        //increment the number of items in the list
+        numItems++;
+        return newItem;
+    }
+
+    //Unlinks currentItem, given the item before it on the bottom level and the items before it on every level in
+    //update, and puts it on the free list
+    final void unlinkItem(int currentItem, int previousItem) {
+        //Delete the item as we would in a linked list, once on each of its levels
+        int currentLinks = linkStart[currentItem];
+        for (int level = 0; level < levels[currentItem]; level++)
+            links[linkStart[update[level]] + level] = links[currentLinks + level];
+        previous[links[currentLinks]] = previousItem;
+        freeItem(currentItem);
+
+        //Decrement the number of items in the list
+        numItems--;
+
+        //If there are empty levels at the top of our skip list, we stop searching them
+        while (currentHeight > 0 && links[linkStart[HEAD] + currentHeight] == TAIL)
+            currentHeight--;
+    }
+
+    //Returns an item with the given number of links, reusing a free one if there is one
+    private int allocateItem(int itemLevels) {
+        int item = freeItems[itemLevels];
+        if (item != NONE) {
+            freeItems[itemLevels] = previous[item];
+            return item;
+        }
+        //Otherwise take the next unused slot, growing the arrays when they are full
+        if (itemCount == previous.length) {
+            int capacity = previous.length * 2;
+            growKeys(capacity);
+            previous = Arrays.copyOf(previous, capacity);
+            linkStart = Arrays.copyOf(linkStart, capacity);
+            levels = Arrays.copyOf(levels, capacity);
+        }
+        if (linkCount + itemLevels > links.length)
+            links = Arrays.copyOf(links, Math.max(links.length * 2, linkCount + itemLevels));
+        item = itemCount++;
+        linkStart[item] = linkCount;
+        levels[item] = (byte) itemLevels;
+        linkCount += itemLevels;
+        return item;
+    }
+
+    //Puts a removed item on the free list for its number of links
+    private void freeItem(int item) {
+        previous[item] = freeItems[levels[item]];
+        freeItems[levels[item]] = item;
+    }
+}
@@ -0,0 +1,1026 @@
+// Genericized Skip List Map Collection
+// Program created by Connor Cribley
+
+/*
+    DISCLAIMER: This program was created in its entirety by Connor Cribley. I do not authorize anybody to
+    replicate, alter, submit, or otherwise use this program in a way which violates the academic integrity of any
+    educational institution. Any attempt to use this code to commit academic plagiarism was done so without my
+    permission.
+*/
+
+
+import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/*
+Sorted map built on the skip list of SkipListSet. The keys are the items of a SkipListSet and each value is kept in
+the item of its key, so a mapping costs one item and every operation on it (get, put, remove, computeIfAbsent,
+merge, ...) takes one descent, instead of a set item plus a hash map entry and a lookup in each.
+
+Null keys and null values aren't allowed. Like SkipListSet, first and last keys are null if the map is empty.
+*/
+public class SkipListMap<K, V> extends AbstractMap<K, V> implements NavigableMap<K, V> {
+
+    //Item that also holds a value. It is its own map entry, so walking the entries allocates nothing
+    static class SkipListMapItem<K, V> extends SkipListSet.SkipListSetItem<K> implements Map.Entry<K, V> {
+        //Value
+        private V value;
+
+        //Getters
+        @Override
+        public K getKey() { return getPayload(); }
+        @Override
+        public V getValue() { return value; }
+
+        //Setter. Entries handed out by the entry set write through to the map
+        @Override
+        public V setValue(V value) {
+            V oldValue = this.value;
+            this.value = Objects.requireNonNull(value);
+            return oldValue;
+        }
+
+        //Entries are equal if their keys and values are
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?, ?> entry = (Map.Entry<?, ?>) o;
+            return getKey().equals(entry.getKey()) && Objects.equals(value, entry.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return getKey().hashCode() ^ Objects.hashCode(value);
+        }
+
+        @Override
+        public String toString() {
+            return getKey() + "=" + value;
+        }
+
+        //Constructor
+        public SkipListMapItem(K key, int levels) {
+            super(key, levels);
+        }
+    }
+
+    //Entry iterator class. Walks the bottom level from startItem, forwards or backwards, up to the end of the view
+    class EntryIterator implements Iterator<Map.Entry<K, V>> {
+        //Next item, and the item returned last (null once it has been removed)
+        SkipListMapItem<K, V> nextItem;
+        SkipListMapItem<K, V> lastItem;
+        //Range view whose bounds end the iteration (null to run to the end of the list)
+        SkipListSubMap view;
+        boolean descending;
+
+        //Constructor
+        EntryIterator(SkipListSet.SkipListSetItem<K> startItem, SkipListSubMap view, boolean descending) {
+            this.nextItem = item(startItem);
+            this.view = view;
+            this.descending = descending;
+        }
+
+        //Returns false if we have reached the end of the list or the view
+        @Override
+        public boolean hasNext() {
+            return nextItem != null && (view == null || view.inRange(nextItem.getKey()));
+        }
+
+        //Returns the entry of the current iteration
+        @Override
+        public Map.Entry<K, V> next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            lastItem = nextItem;
+            nextItem = item(descending ? keys.previousItem(nextItem) : keys.nextItem(nextItem));
+            return lastItem;
+        }
+
+        //Removes the entry returned last. A removed item keeps its links, so the iteration carries on from it
+        @Override
+        public void remove() {
+            if (lastItem == null)
+                throw new IllegalStateException("Error: No entry to remove!");
+            keys.remove(lastItem.getKey());
+            lastItem = null;
+        }
+    }
+
+    //Entry set view class, over the whole map or a range view of it
+    class EntrySet extends AbstractSet<Map.Entry<K, V>> {
+        //Range view (null for the whole map)
+        private final SkipListSubMap view;
+
+        //Constructor
+        EntrySet(SkipListSubMap view) {
+            this.view = view;
+        }
+
+        //Returns the map the entries belong to
+        private NavigableMap<K, V> map() {
+            return view == null ? SkipListMap.this : view;
+        }
+
+        @Override
+        public Iterator<Map.Entry<K, V>> iterator() {
+            if (view == null)
+                return new EntryIterator(keys.firstItem(), null, false);
+            return view.entryIterator();
+        }
+
+        @Override
+        public int size() {
+            return map().size();
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return map().isEmpty();
+        }
+
+        //Returns true if the map holds the entry's key with the entry's value
+        @Override
+        public boolean contains(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?, ?> entry = (Map.Entry<?, ?>) o;
+            V value = map().get(entry.getKey());
+            return value != null && value.equals(entry.getValue());
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            if (!contains(o))
+                return false;
+            map().remove(((Map.Entry<?, ?>) o).getKey());
+            return true;
+        }
+
+        @Override
+        public void clear() {
+            map().clear();
+        }
+    }
+
+    //Key set view class, backed by a map (this one or a view of it). Keys can be removed but not added
+    static class KeySet<K> extends AbstractSet<K> implements NavigableSet<K> {
+        //Map whose keys these are
+        private final NavigableMap<K, ?> map;
+
+        //Constructor
+        KeySet(NavigableMap<K, ?> map) {
+            this.map = map;
+        }
+
+        @Override
+        public Iterator<K> iterator() {
+            Iterator<? extends Map.Entry<K, ?>> entries = map.entrySet().iterator();
+            return new Iterator<K>() {
+                @Override
+                public boolean hasNext() {
+                    return entries.hasNext();
+                }
+                @Override
+                public K next() {
+                    return entries.next().getKey();
+                }
+                @Override
+                public void remove() {
+                    entries.remove();
+                }
+            };
+        }
+
+        @Override
+        public Iterator<K> descendingIterator() {
+            return descendingSet().iterator();
+        }
+
+        @Override
+        public int size() {
+            return map.size();
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return map.isEmpty();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return map.containsKey(o);
+        }
+
+        //Values are never null, so a null from remove() means the key wasn't there
+        @Override
+        public boolean remove(Object o) {
+            return map.remove(o) != null;
+        }
+
+        @Override
+        public void clear() {
+            map.clear();
+        }
+
+        @Override
+        public Comparator<? super K> comparator() {
+            return map.comparator();
+        }
+
+        //Returns the first key (null if there is none)
+        @Override
+        public K first() {
+            return map.firstKey();
+        }
+
+        //Returns the last key (null if there is none)
+        @Override
+        public K last() {
+            return map.lastKey();
+        }
+
+        @Override
+        public K lower(K e) {
+            return map.lowerKey(e);
+        }
+
+        @Override
+        public K floor(K e) {
+            return map.floorKey(e);
+        }
+
+        @Override
+        public K ceiling(K e) {
+            return map.ceilingKey(e);
+        }
+
+        @Override
+        public K higher(K e) {
+            return map.higherKey(e);
+        }
+
+        @Override
+        public K pollFirst() {
+            Map.Entry<K, ?> entry = map.pollFirstEntry();
+            return entry == null ? null : entry.getKey();
+        }
+
+        @Override
+        public K pollLast() {
+            Map.Entry<K, ?> entry = map.pollLastEntry();
+            return entry == null ? null : entry.getKey();
+        }
+
+        @Override
+        public NavigableSet<K> descendingSet() {
+            return new KeySet<K>(map.descendingMap());
+        }
+
+        @Override
+        public NavigableSet<K> subSet(K fromElement, boolean fromInclusive, K toElement, boolean toInclusive) {
+            return new KeySet<K>(map.subMap(fromElement, fromInclusive, toElement, toInclusive));
+        }
+
+        @Override
+        public NavigableSet<K> headSet(K toElement, boolean inclusive) {
+            return new KeySet<K>(map.headMap(toElement, inclusive));
+        }
+
+        @Override
+        public NavigableSet<K> tailSet(K fromElement, boolean inclusive) {
+            return new KeySet<K>(map.tailMap(fromElement, inclusive));
+        }
+
+        @Override
+        public SortedSet<K> subSet(K fromElement, K toElement) {
+            return subSet(fromElement, true, toElement, false);
+        }
+
+        @Override
+        public SortedSet<K> headSet(K toElement) {
+            return headSet(toElement, false);
+        }
+
+        @Override
+        public SortedSet<K> tailSet(K fromElement) {
+            return tailSet(fromElement, true);
+        }
+    }
+
+    /*
+    Range view class. Like SkipListSubSet, a view is just a pair of bounds (and a direction) over the map, and
+    every operation searches the list itself, so changes made through the map show up in the view and vice versa.
+    */
+    class SkipListSubMap extends AbstractMap<K, V> implements NavigableMap<K, V> {
+        //Bounds of the view
+        private final K fromKey;
+        private final boolean fromInclusive;
+        private final K toKey;
+        private final boolean toInclusive;
+        //Whether the view is in descending order
+        private final boolean descending;
+
+        //Constructor
+        SkipListSubMap(K fromKey, boolean fromInclusive, K toKey, boolean toInclusive, boolean descending) {
+            this.fromKey = fromKey;
+            this.fromInclusive = fromInclusive;
+            this.toKey = toKey;
+            this.toInclusive = toInclusive;
+            this.descending = descending;
+        }
+
+        //Returns true if the key is below the lower bound of the view
+        private boolean tooLow(K key) {
+            if (fromKey == null)
+                return false;
+            int comparison = keys.compare(key, fromKey);
+            return comparison < 0 || (comparison == 0 && !fromInclusive);
+        }
+
+        //Returns true if the key is above the upper bound of the view
+        private boolean tooHigh(K key) {
+            if (toKey == null)
+                return false;
+            int comparison = keys.compare(key, toKey);
+            return comparison > 0 || (comparison == 0 && !toInclusive);
+        }
+
+        //Returns true if the key is between the bounds of the view
+        boolean inRange(K key) {
+            return !tooLow(key) && !tooHigh(key);
+        }
+
+        //Returns true if the key can be a bound of a view nested in this one
+        private boolean inRange(K key, boolean inclusive) {
+            if (inclusive)
+                return inRange(key);
+            return (fromKey == null || keys.compare(key, fromKey) >= 0)
+                && (toKey == null || keys.compare(key, toKey) <= 0);
+        }
+
+        //Returns the item if it's in the view, null otherwise
+        private SkipListMapItem<K, V> itemInRange(SkipListSet.SkipListSetItem<K> item) {
+            if (item == null || !inRange(item.getPayload()))
+                return null;
+            return item(item);
+        }
+
+        //Returns the lowest and highest items in the view (null if the view is empty)
+        private SkipListMapItem<K, V> lowestItem() {
+            return itemInRange(fromKey == null ? keys.firstItem() : keys.nearItem(fromKey, true, fromInclusive));
+        }
+        private SkipListMapItem<K, V> highestItem() {
+            return itemInRange(toKey == null ? keys.lastItem() : keys.nearItem(toKey, false, toInclusive));
+        }
+
+        //Nearest-key searches in ascending order, clamped to the view
+        private SkipListMapItem<K, V> ascendingItem(K key, boolean above, boolean inclusive) {
+            if (above && tooLow(key))
+                return lowestItem();
+            if (!above && tooHigh(key))
+                return highestItem();
+            return itemInRange(keys.nearItem(key, above, inclusive));
+        }
+
+        //Nearest-key searches in the view's order
+        private SkipListMapItem<K, V> relativeItem(K key, boolean above, boolean inclusive) {
+            return ascendingItem(key, above != descending, inclusive);
+        }
+
+        //Returns an iterator over the entries of the view, in its order
+        Iterator<Map.Entry<K, V>> entryIterator() {
+            return new EntryIterator(descending ? highestItem() : lowestItem(), this, descending);
+        }
+
+        //Counts the entries in the view as the difference between the positions of its bounds (two descents)
+        @Override
+        public int size() {
+            return keys.countRange(fromKey, fromInclusive, toKey, toInclusive);
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return lowestItem() == null;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public boolean containsKey(Object key) {
+            return inRange((K)key) && SkipListMap.this.containsKey(key);
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public V get(Object key) {
+            return inRange((K)key) ? SkipListMap.this.get(key) : null;
+        }
+
+        //Maps the key to the value, if the key is in the view's range
+        @Override
+        public V put(K key, V value) {
+            if (!inRange(key))
+                throw new IllegalArgumentException("Error: Key is outside the range of this view!");
+            return SkipListMap.this.put(key, value);
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public V remove(Object key) {
+            return inRange((K)key) ? SkipListMap.this.remove(key) : null;
+        }
+
+        //Removes every entry in the view from the map, in one cut (see SkipListSet.removeRange())
+        @Override
+        public void clear() {
+            keys.removeRange(fromKey, fromInclusive, toKey, toInclusive);
+        }
+
+        @Override
+        public Set<Map.Entry<K, V>> entrySet() {
+            return new EntrySet(this);
+        }
+
+        @Override
+        public NavigableSet<K> keySet() {
+            return navigableKeySet();
+        }
+
+        @Override
+        public NavigableSet<K> navigableKeySet() {
+            return new KeySet<K>(this);
+        }
+
+        @Override
+        public NavigableSet<K> descendingKeySet() {
+            return new KeySet<K>(descendingMap());
+        }
+
+        @Override
+        public Comparator<? super K> comparator() {
+            return descending ? Collections.reverseOrder(keys.comparator()) : keys.comparator();
+        }
+
+        //Returns the first and last entries and keys of the view (null if the view is empty)
+        @Override
+        public Map.Entry<K, V> firstEntry() {
+            return exportEntry(descending ? highestItem() : lowestItem());
+        }
+
+        @Override
+        public Map.Entry<K, V> lastEntry() {
+            return exportEntry(descending ? lowestItem() : highestItem());
+        }
+
+        @Override
+        public K firstKey() {
+            return key(descending ? highestItem() : lowestItem());
+        }
+
+        @Override
+        public K lastKey() {
+            return key(descending ? lowestItem() : highestItem());
+        }
+
+        //Removes and returns the first or last entry of the view (null if the view is empty)
+        @Override
+        public Map.Entry<K, V> pollFirstEntry() {
+            return pollItem(descending ? highestItem() : lowestItem());
+        }
+
+        @Override
+        public Map.Entry<K, V> pollLastEntry() {
+            return pollItem(descending ? lowestItem() : highestItem());
+        }
+
+        //Nearest-key searches, in the view's order
+        @Override
+        public Map.Entry<K, V> lowerEntry(K key) {
+            return exportEntry(relativeItem(key, false, false));
+        }
+
+        @Override
+        public K lowerKey(K key) {
+            return key(relativeItem(key, false, false));
+        }
+
+        @Override
+        public Map.Entry<K, V> floorEntry(K key) {
+            return exportEntry(relativeItem(key, false, true));
+        }
+
+        @Override
+        public K floorKey(K key) {
+            return key(relativeItem(key, false, true));
+        }
+
+        @Override
+        public Map.Entry<K, V> ceilingEntry(K key) {
+            return exportEntry(relativeItem(key, true, true));
+        }
+
+        @Override
+        public K ceilingKey(K key) {
+            return key(relativeItem(key, true, true));
+        }
+
+        @Override
+        public Map.Entry<K, V> higherEntry(K key) {
+            return exportEntry(relativeItem(key, true, false));
+        }
+
+        @Override
+        public K higherKey(K key) {
+            return key(relativeItem(key, true, false));
+        }
+
+        //Returns the same range in the opposite order
+        @Override
+        public NavigableMap<K, V> descendingMap() {
+            return new SkipListSubMap(fromKey, fromInclusive, toKey, toInclusive, !descending);
+        }
+
+        //Returns a view of the part of this view between the two keys, given in this view's order
+        @Override
+        public NavigableMap<K, V> subMap(K fromKey, boolean fromInclusive, K toKey, boolean toInclusive) {
+            Objects.requireNonNull(fromKey);
+            Objects.requireNonNull(toKey);
+            if (descending)
+                return nestedView(toKey, toInclusive, fromKey, fromInclusive);
+            return nestedView(fromKey, fromInclusive, toKey, toInclusive);
+        }
+
+        //Returns a view of the part of this view before toKey, in this view's order
+        @Override
+        public NavigableMap<K, V> headMap(K toKey, boolean inclusive) {
+            Objects.requireNonNull(toKey);
+            if (descending)
+                return nestedView(toKey, inclusive, null, false);
+            return nestedView(null, false, toKey, inclusive);
+        }
+
+        //Returns a view of the part of this view after fromKey, in this view's order
+        @Override
+        public NavigableMap<K, V> tailMap(K fromKey, boolean inclusive) {
+            Objects.requireNonNull(fromKey);
+            if (descending)
+                return nestedView(null, false, fromKey, inclusive);
+            return nestedView(fromKey, inclusive, null, false);
+        }
+
+        @Override
+        public SortedMap<K, V> subMap(K fromKey, K toKey) {
+            return subMap(fromKey, true, toKey, false);
+        }
+
+        @Override
+        public SortedMap<K, V> headMap(K toKey) {
+            return headMap(toKey, false);
+        }
+
+        @Override
+        public SortedMap<K, V> tailMap(K fromKey) {
+            return tailMap(fromKey, true);
+        }
+
+        //Builds a view nested in this one from ascending bounds, where a null bound means "same as this view" (the
+        //public methods have already turned away null bounds from the caller)
+        private NavigableMap<K, V> nestedView(K lowKey, boolean lowInclusive, K highKey, boolean highInclusive) {
+            if (lowKey != null && highKey != null && keys.compare(lowKey, highKey) > 0)
+                throw new IllegalArgumentException("Error: fromKey is greater than toKey!");
+            if (lowKey == null) {
+                lowKey = fromKey;
+                lowInclusive = fromInclusive;
+            }
+            else if (!inRange(lowKey, lowInclusive))
+                throw new IllegalArgumentException("Error: Bound is outside the range of this view!");
+            if (highKey == null) {
+                highKey = toKey;
+                highInclusive = toInclusive;
+            }
+            else if (!inRange(highKey, highInclusive))
+                throw new IllegalArgumentException("Error: Bound is outside the range of this view!");
+            return new SkipListSubMap(lowKey, lowInclusive, highKey, highInclusive, descending);
+        }
+    }
+
+    //The keys, in a skip list whose items are SkipListMapItems
+    private final SkipListSet<K> keys;
+
+
+    //Constructors
+
+    //Builds a new, empty map
+    public SkipListMap() {
+        this(LevelGenerator.DEFAULT);
+    }
+
+    //Builds a new, empty map whose items get their levels from the given generator
+    public SkipListMap(LevelGenerator levelGenerator) {
+        this(null, levelGenerator);
+    }
+
+    //Builds a new, empty map ordered by the given comparator (null for natural ordering)
+    public SkipListMap(Comparator<? super K> comparator) {
+        this(comparator, LevelGenerator.DEFAULT);
+    }
+
+    //Builds a new, empty map ordered by the given comparator, whose items get their levels from the generator
+    public SkipListMap(Comparator<? super K> comparator, LevelGenerator levelGenerator) {
+        keys = new SkipListSet<K>(comparator, levelGenerator) {
+            @Override
+            SkipListSetItem<K> newItem(K payload, int levels) {
+                return new SkipListMapItem<K, V>(payload, levels);
+            }
+        };
+    }
+
+    //Builds a new map then puts all the entries of m in it. If m is sorted this takes one linear pass
+    public SkipListMap(Map<? extends K, ? extends V> m) {
+        this();
+        putAll(m);
+    }
+
+    //Return the number of entries in the map
+    @Override
+    public int size() {
+        return keys.size();
+    }
+
+    //Return true if the map is empty, false otherwise
+    @Override
+    public boolean isEmpty() {
+        return keys.isEmpty();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return keys.contains(key);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public V get(Object key) {
+        SkipListMapItem<K, V> item = item(keys.findItem((K)key));
+        return item == null ? null : item.value;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public V getOrDefault(Object key, V defaultValue) {
+        SkipListMapItem<K, V> item = item(keys.findItem((K)key));
+        return item == null ? defaultValue : item.value;
+    }
+
+    //Looks up a batch of keys at once, returning their values in the same order (null where a key isn't in the
+    //map). The keys are found in one forward sweep, as in SkipListSet.containsEach
+    public List<V> getEach(K[] keys) {
+        SkipListSet.SkipListSetItem<K>[] foundItems = this.keys.findEach(keys);
+        List<V> values = new ArrayList<V>(foundItems.length);
+        for (SkipListSet.SkipListSetItem<K> foundItem : foundItems)
+            values.add(foundItem == null ? null : item(foundItem).value);
+        return values;
+    }
+
+    //Maps the key to the value, returning the value it had before (null if it wasn't in the map)
+    @Override
+    public V put(K key, V value) {
+        Objects.requireNonNull(value);
+        //A new item has no value yet, which is how put() tells that the key wasn't there
+        SkipListMapItem<K, V> item = item(keys.addItem(key));
+        V oldValue = item.value;
+        item.value = value;
+        return oldValue;
+    }
+
+    @Override
+    public V putIfAbsent(K key, V value) {
+        Objects.requireNonNull(value);
+        SkipListMapItem<K, V> item = item(keys.addItem(key));
+        V oldValue = item.value;
+        if (oldValue == null)
+            item.value = value;
+        return oldValue;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public V remove(Object key) {
+        SkipListMapItem<K, V> item = item(keys.removeItem((K)key));
+        return item == null ? null : item.value;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public boolean remove(Object key, Object value) {
+        SkipListMapItem<K, V> item = item(keys.findPath((K)key));
+        if (item == null || !item.value.equals(value))
+            return false;
+        keys.removeAtPath(item);
+        return true;
+    }
+
+    @Override
+    public V replace(K key, V value) {
+        Objects.requireNonNull(value);
+        SkipListMapItem<K, V> item = item(keys.findItem(key));
+        return item == null ? null : item.setValue(value);
+    }
+
+    @Override
+    public boolean replace(K key, V oldValue, V newValue) {
+        Objects.requireNonNull(newValue);
+        SkipListMapItem<K, V> item = item(keys.findItem(key));
+        if (item == null || !item.value.equals(oldValue))
+            return false;
+        item.value = newValue;
+        return true;
+    }
+
+    /*
+    The compute methods search for the key once and copy the search path before calling the function, since any
+    search the function makes (even a get or a put of a key that is already there) writes over the list's scratch
+    arrays. The key is then inserted or removed at the copied path. The function must not add or remove keys: if
+    it does, the path may no longer be right, so a ConcurrentModificationException is thrown.
+    */
+
+    //Returns the value of the key, first mapping it to mappingFunction's value if it isn't in the map
+    @Override
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+        SkipListMapItem<K, V> item = item(keys.findPath(key));
+        if (item != null)
+            return item.value;
+        SkipListSet<K>.SavedPath path = keys.savePath();
+        int modCount = keys.getModCount();
+        V value = mappingFunction.apply(key);
+        if (value == null)
+            return null;
+        checkModCount(modCount);
+        return insert(path, key, value);
+    }
+
+    //Replaces the value of the key with remappingFunction's value, or removes the key if that is null
+    @Override
+    public V computeIfPresent(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        SkipListMapItem<K, V> item = item(keys.findPath(key));
+        if (item == null)
+            return null;
+        SkipListSet<K>.SavedPath path = keys.savePath();
+        int modCount = keys.getModCount();
+        return remap(path, item, remappingFunction.apply(key, item.value), modCount);
+    }
+
+    //Maps the key to remappingFunction's value (given the old value, or null), or removes it if that is null
+    @Override
+    public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        SkipListMapItem<K, V> item = item(keys.findPath(key));
+        SkipListSet<K>.SavedPath path = keys.savePath();
+        int modCount = keys.getModCount();
+        V newValue = remappingFunction.apply(key, item == null ? null : item.value);
+        if (item != null)
+            return remap(path, item, newValue, modCount);
+        if (newValue == null)
+            return null;
+        checkModCount(modCount);
+        return insert(path, key, newValue);
+    }
+
+    //Maps the key to value if it isn't in the map, otherwise to remappingFunction's value given the old value and
+    //value (removing it if that is null)
+    @Override
+    public V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        Objects.requireNonNull(value);
+        SkipListMapItem<K, V> item = item(keys.findPath(key));
+        if (item == null) {
+            //No function runs before the insert, so the path is still good
+            item = item(keys.insertAtPath(key));
+            item.value = value;
+            return value;
+        }
+        SkipListSet<K>.SavedPath path = keys.savePath();
+        int modCount = keys.getModCount();
+        return remap(path, item, remappingFunction.apply(item.value, value), modCount);
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        for (SkipListMapItem<K, V> item = item(keys.firstItem()); item != null; item = item(keys.nextItem(item)))
+            action.accept(item.getKey(), item.value);
+    }
+
+    @Override
+    public void replaceAll(BiFunction<? super K, ? super V, ? extends V> function) {
+        for (SkipListMapItem<K, V> item = item(keys.firstItem()); item != null; item = item(keys.nextItem(item)))
+            item.value = Objects.requireNonNull(function.apply(item.getKey(), item.value));
+    }
+
+    @Override
+    public void clear() {
+        keys.clear();
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        return new EntrySet(null);
+    }
+
+    @Override
+    public NavigableSet<K> keySet() {
+        return navigableKeySet();
+    }
+
+    @Override
+    public NavigableSet<K> navigableKeySet() {
+        return new KeySet<K>(this);
+    }
+
+    @Override
+    public NavigableSet<K> descendingKeySet() {
+        return new KeySet<K>(descendingMap());
+    }
+
+    @Override
+    public Comparator<? super K> comparator() {
+        //null means natural ordering
+        return keys.comparator();
+    }
+
+    //Returns the first and last entries and keys (null if the map is empty)
+    @Override
+    public Map.Entry<K, V> firstEntry() {
+        return exportEntry(item(keys.firstItem()));
+    }
+
+    @Override
+    public Map.Entry<K, V> lastEntry() {
+        return exportEntry(item(keys.lastItem()));
+    }
+
+    @Override
+    public K firstKey() {
+        return keys.first();
+    }
+
+    @Override
+    public K lastKey() {
+        return keys.last();
+    }
+
+    //Removes and returns the first or last entry (null if the map is empty)
+    @Override
+    public Map.Entry<K, V> pollFirstEntry() {
+        Map.Entry<K, V> entry = firstEntry();
+        if (entry != null)
+            keys.pollFirst();
+        return entry;
+    }
+
+    @Override
+    public Map.Entry<K, V> pollLastEntry() {
+        Map.Entry<K, V> entry = lastEntry();
+        if (entry != null)
+            keys.pollLast();
+        return entry;
+    }
+
+    //Returns the entry (or key) with the greatest key strictly less than key (null if there is none)
+    @Override
+    public Map.Entry<K, V> lowerEntry(K key) {
+        return exportEntry(item(keys.nearItem(key, false, false)));
+    }
+
+    @Override
+    public K lowerKey(K key) {
+        return keys.lower(key);
+    }
+
+    //Returns the entry (or key) with the greatest key less than or equal to key (null if there is none)
+    @Override
+    public Map.Entry<K, V> floorEntry(K key) {
+        return exportEntry(item(keys.nearItem(key, false, true)));
+    }
+
+    @Override
+    public K floorKey(K key) {
+        return keys.floor(key);
+    }
+
+    //Returns the entry (or key) with the least key greater than or equal to key (null if there is none)
+    @Override
+    public Map.Entry<K, V> ceilingEntry(K key) {
+        return exportEntry(item(keys.nearItem(key, true, true)));
+    }
+
+    @Override
+    public K ceilingKey(K key) {
+        return keys.ceiling(key);
+    }
+
+    //Returns the entry (or key) with the least key strictly greater than key (null if there is none)
+    @Override
+    public Map.Entry<K, V> higherEntry(K key) {
+        return exportEntry(item(keys.nearItem(key, true, false)));
+    }
+
+    @Override
+    public K higherKey(K key) {
+        return keys.higher(key);
+    }
+
+    //Returns a view of the whole map in descending order
+    @Override
+    public NavigableMap<K, V> descendingMap() {
+        return new SkipListSubMap(null, false, null, false, true);
+    }
+
+    //Returns a view of the entries with keys between fromKey and toKey
+    @Override
+    public NavigableMap<K, V> subMap(K fromKey, boolean fromInclusive, K toKey, boolean toInclusive) {
+        if (keys.compare(fromKey, toKey) > 0)
+            throw new IllegalArgumentException("Error: fromKey is greater than toKey!");
+        return new SkipListSubMap(fromKey, fromInclusive, toKey, toInclusive, false);
+    }
+
+    //Returns a view of the entries with keys before (or up to, if inclusive) toKey
+    @Override
+    public NavigableMap<K, V> headMap(K toKey, boolean inclusive) {
+        return new SkipListSubMap(null, false, Objects.requireNonNull(toKey), inclusive, false);
+    }
+
+    //Returns a view of the entries with keys after (or from, if inclusive) fromKey
+    @Override
+    public NavigableMap<K, V> tailMap(K fromKey, boolean inclusive) {
+        return new SkipListSubMap(Objects.requireNonNull(fromKey), inclusive, null, false, false);
+    }
+
+    //Returns a view of the entries with keys from fromKey up to (but not including) toKey
+    @Override
+    public SortedMap<K, V> subMap(K fromKey, K toKey) {
+        return subMap(fromKey, true, toKey, false);
+    }
+
+    //Returns a view of the entries with keys before toKey
+    @Override
+    public SortedMap<K, V> headMap(K toKey) {
+        return headMap(toKey, false);
+    }
+
+    //Returns a view of the entries with keys from fromKey onwards
+    @Override
+    public SortedMap<K, V> tailMap(K fromKey) {
+        return tailMap(fromKey, true);
+    }
+
+    //Rebalances the heights of all the items (see SkipListSet.reBalance())
+    public void reBalance() {
+        keys.reBalance();
+    }
+
+    //Returns the item as a map item. Every item of keys is one, since keys only makes SkipListMapItems
+    @SuppressWarnings("unchecked")
+    private SkipListMapItem<K, V> item(SkipListSet.SkipListSetItem<K> item) {
+        return (SkipListMapItem<K, V>) item;
+    }
+
+    //Returns a copy of the item's entry that won't change with the map (null if there is no item)
+    private Map.Entry<K, V> exportEntry(SkipListMapItem<K, V> item) {
+        return item == null ? null : new AbstractMap.SimpleImmutableEntry<K, V>(item);
+    }
+
+    //Returns the key of the item (null if there is no item)
+    private K key(SkipListMapItem<K, V> item) {
+        return item == null ? null : item.getKey();
+    }
+
+    //Removes the item and returns its entry (null if there is no item)
+    private Map.Entry<K, V> pollItem(SkipListMapItem<K, V> item) {
+        if (item == null)
+            return null;
+        keys.remove(item.getKey());
+        return exportEntry(item);
+    }
+
+    //Gives an item its new value, or removes it at its saved path if the value is null
+    private V remap(SkipListSet<K>.SavedPath path, SkipListMapItem<K, V> item, V newValue, int modCount) {
+        checkModCount(modCount);
+        if (newValue == null)
+            path.remove(item);
+        else
+            item.value = newValue;
+        return newValue;
+    }
+
+    //Adds a key that a compute method found missing at its saved path, and gives it value
+    private V insert(SkipListSet<K>.SavedPath path, K key, V value) {
+        item(path.insert(key)).value = value;
+        return value;
+    }
+
+    //Throws if keys were added or removed since modCount was read, which the compute methods don't allow
+    private void checkModCount(int modCount) {
+        if (keys.getModCount() != modCount)
+            throw new ConcurrentModificationException("Error: Map was changed by the remapping function!");
+    }
+}
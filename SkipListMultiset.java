@@ -0,0 +1,286 @@
+// Genericized Skip List Multiset Collection
+// Program created by Connor Cribley
+
+/*
+    DISCLAIMER: This program was created in its entirety by Connor Cribley. I do not authorize anybody to
+    replicate, alter, submit, or otherwise use this program in a way which violates the academic integrity of any
+    educational institution. Any attempt to use this code to commit academic plagiarism was done so without my
+    permission.
+*/
+
+
+import java.util.*;
+import java.util.function.ObjIntConsumer;
+
+/*
+Sorted multiset (bag) built on the skip list of SkipListSet. Each distinct element is one item of a SkipListSet,
+and the item keeps how many times the element occurs, so adding the same element again only bumps a count instead
+of wrapping it with a tie-breaker to make it unique. add(e, n), remove(e, n), count(e) and setCount(e, n) all take
+one descent, and the iterator hands out each element as many times as it occurs, in ascending order.
+
+size() is the total number of occurrences (capped at Integer.MAX_VALUE, see totalCount()), and distinctCount() is
+the number of distinct elements. Null elements aren't allowed. Like SkipListSet, first and last are null if the
+multiset is empty.
+*/
+public class SkipListMultiset<T> extends AbstractCollection<T> {
+
+    //Item that also holds how many times its element occurs
+    static class SkipListMultisetItem<T> extends SkipListSet.SkipListSetItem<T> {
+        //Number of occurrences. A new item has none until the multiset gives it some
+        private int count;
+
+        //Getter
+        public int getCount() { return count; }
+
+        //Constructor
+        public SkipListMultisetItem(T payload, int levels) {
+            super(payload, levels);
+        }
+    }
+
+    //Iterator class. Walks the bottom level, handing out each item's element once per occurrence
+    class MultisetIterator implements Iterator<T> {
+        //Item whose occurrences are being handed out, and how many of them are left
+        SkipListMultisetItem<T> currentItem;
+        int remaining;
+        //Item of the occurrence returned last (null once it has been removed)
+        SkipListMultisetItem<T> lastItem;
+
+        //Constructor
+        MultisetIterator() {
+            moveTo(item(elements.firstItem()));
+        }
+
+        //Starts handing out the occurrences of item (null at the end of the list)
+        private void moveTo(SkipListMultisetItem<T> item) {
+            currentItem = item;
+            remaining = item == null ? 0 : item.count;
+        }
+
+        //Returns false if every occurrence has been handed out
+        @Override
+        public boolean hasNext() {
+            return remaining > 0;
+        }
+
+        //Returns the element of the current iteration
+        @Override
+        public T next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            lastItem = currentItem;
+            if (--remaining == 0)
+                moveTo(item(elements.nextItem(currentItem)));
+            return lastItem.getPayload();
+        }
+
+        //Removes the occurrence returned last. An item whose last occurrence goes is removed from the list, and
+        //since a removed item keeps its links the iteration carries on from it
+        @Override
+        public void remove() {
+            if (lastItem == null)
+                throw new IllegalStateException("Error: No element to remove!");
+            if (lastItem.count == 1)
+                elements.remove(lastItem.getPayload());
+            else
+                lastItem.count--;
+            size--;
+            lastItem = null;
+        }
+    }
+
+    //The distinct elements, in a skip list whose items are SkipListMultisetItems
+    private final SkipListSet<T> elements;
+    //Total number of occurrences
+    private long size;
+
+
+    //Constructors
+
+    //Builds a new, empty multiset
+    public SkipListMultiset() {
+        this(LevelGenerator.DEFAULT);
+    }
+
+    //Builds a new, empty multiset whose items get their levels from the given generator
+    public SkipListMultiset(LevelGenerator levelGenerator) {
+        this(null, levelGenerator);
+    }
+
+    //Builds a new, empty multiset ordered by the given comparator (null for natural ordering)
+    public SkipListMultiset(Comparator<? super T> comparator) {
+        this(comparator, LevelGenerator.DEFAULT);
+    }
+
+    //Builds a new, empty multiset ordered by the given comparator, whose items get their levels from the generator
+    public SkipListMultiset(Comparator<? super T> comparator, LevelGenerator levelGenerator) {
+        elements = new SkipListSet<T>(comparator, levelGenerator) {
+            @Override
+            SkipListSetItem<T> newItem(T payload, int levels) {
+                return new SkipListMultisetItem<T>(payload, levels);
+            }
+        };
+    }
+
+    //Builds a new multiset then adds every element of c to it, once for each time it occurs in c
+    public SkipListMultiset(Collection<? extends T> c) {
+        this();
+        addAll(c);
+    }
+
+    //Return the total number of occurrences, or Integer.MAX_VALUE if there are more than that
+    @Override
+    public int size() {
+        return (int) Math.min(size, Integer.MAX_VALUE);
+    }
+
+    //Return the total number of occurrences, which can be more than an int holds
+    public long totalCount() {
+        return size;
+    }
+
+    //Return the number of distinct elements
+    public int distinctCount() {
+        return elements.size();
+    }
+
+    //Return true if the multiset is empty, false otherwise
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return elements.contains(o);
+    }
+
+    //Returns the number of times o occurs (0 if it doesn't)
+    @SuppressWarnings("unchecked")
+    public int count(Object o) {
+        SkipListMultisetItem<T> item = item(elements.findItem((T)o));
+        return item == null ? 0 : item.count;
+    }
+
+    //Adds one occurrence of e. Always returns true, since a multiset always changes when something is added
+    @Override
+    public boolean add(T e) {
+        add(e, 1);
+        return true;
+    }
+
+    //Adds occurrences of e, returning the number it had before
+    public int add(T e, int occurrences) {
+        checkOccurrences(occurrences);
+        if (occurrences == 0)
+            return count(e);
+        //A new item has a count of 0, so it is handled the same as one that was already there
+        SkipListMultisetItem<T> item = item(elements.addItem(e));
+        int oldCount = item.count;
+        if (oldCount > Integer.MAX_VALUE - occurrences)
+            throw new IllegalArgumentException("Error: An element can't occur more than Integer.MAX_VALUE times!");
+        item.count += occurrences;
+        size += occurrences;
+        return oldCount;
+    }
+
+    //Removes one occurrence of o. Returns true if there was one to remove
+    @Override
+    public boolean remove(Object o) {
+        return remove(o, 1) > 0;
+    }
+
+    //Removes up to the given number of occurrences of o, returning the number it had before. The element is
+    //removed from the list once it has none left
+    @SuppressWarnings("unchecked")
+    public int remove(Object o, int occurrences) {
+        checkOccurrences(occurrences);
+        SkipListMultisetItem<T> item = item(elements.findPath((T)o));
+        if (item == null || occurrences == 0)
+            return item == null ? 0 : item.count;
+        int oldCount = item.count;
+        if (oldCount <= occurrences) {
+            elements.removeAtPath(item);
+            size -= oldCount;
+        }
+        else {
+            item.count -= occurrences;
+            size -= occurrences;
+        }
+        return oldCount;
+    }
+
+    //Sets the number of times e occurs (0 removes it), returning the number it had before
+    public int setCount(T e, int count) {
+        checkOccurrences(count);
+        SkipListMultisetItem<T> item = item(elements.findPath(e));
+        int oldCount = item == null ? 0 : item.count;
+        if (count == 0) {
+            if (item != null)
+                elements.removeAtPath(item);
+        }
+        else {
+            if (item == null)
+                item = item(elements.insertAtPath(e));
+            item.count = count;
+        }
+        size += count - oldCount;
+        return oldCount;
+    }
+
+    //Removes every element
+    @Override
+    public void clear() {
+        elements.clear();
+        size = 0;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new MultisetIterator();
+    }
+
+    //Gives each distinct element and its count to action, in ascending order
+    public void forEachEntry(ObjIntConsumer<? super T> action) {
+        for (SkipListMultisetItem<T> item = item(elements.firstItem()); item != null;
+             item = item(elements.nextItem(item)))
+            action.accept(item.getPayload(), item.count);
+    }
+
+    //Returns a read-only view of the distinct elements
+    public NavigableSet<T> elementSet() {
+        return Collections.unmodifiableNavigableSet(elements);
+    }
+
+    //Returns the comparator ordering the elements (null for natural ordering)
+    public Comparator<? super T> comparator() {
+        return elements.comparator();
+    }
+
+    //Returns the smallest and largest elements (null if the multiset is empty)
+    public T first() {
+        return elements.first();
+    }
+
+    public T last() {
+        return elements.last();
+    }
+
+    //Rebalances the heights of all the items (see SkipListSet.reBalance())
+    public void reBalance() {
+        elements.reBalance();
+    }
+
+    //Returns the item as a multiset item. Every item of elements is one, since elements only makes
+    //SkipListMultisetItems
+    @SuppressWarnings("unchecked")
+    private SkipListMultisetItem<T> item(SkipListSet.SkipListSetItem<T> item) {
+        return (SkipListMultisetItem<T>) item;
+    }
+
+    //Throws if a number of occurrences is negative
+    private static void checkOccurrences(int occurrences) {
+        if (occurrences < 0)
+            throw new IllegalArgumentException("Error: Number of occurrences can't be negative!");
+    }
+}
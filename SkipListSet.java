@@ -9,588 +9,3033 @@
 */
 
 
+import java.io.*;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
 
 //Skip list class
-public class SkipListSet<T extends Comparable<T>> implements SortedSet<T> {
+public class SkipListSet<T> implements NavigableSet<T>, Serializable {
 
-    //Iterator class
-    class SkipListSetIterator<T extends Comparable<T>> implements Iterator<T> {
+    private static final long serialVersionUID = 1L;
+
+    //Iterator class. Walks the bottom level, starting straight from the item after the head. It is fail-fast: if
+    //the list is changed other than through the iterator, next() and remove() throw ConcurrentModificationException
+    class SkipListSetIterator implements Iterator<T> {
         //Iterator item
         SkipListSetItem<T> currentItem;
+        //Range view whose upper bound ends the iteration (null to run to the tail)
+        SkipListSubSet view;
+        //Item returned last (null once it has been removed)
+        SkipListSetItem<T> lastItem;
+        //Value of modCount the iterator expects, and the cursor removals search from (made on the first one)
+        int expectedModCount;
+        SkipListSetCursor cursor;
 
         //Constructor
         public SkipListSetIterator() {
-            //initialize the iterator item to head
-            currentItem = (SkipListSetItem<T>) head;
-            
-            //Navigate to the bottom node of the head
-            while (currentItem.getBelow() != null)
-                currentItem = currentItem.getBelow();
+            //The first item is the one directly after the head on the bottom level
+            this(head.getNext(0), null);
+        }
+
+        //Constructor for iterating over part of the list, from startItem up to the end of the view
+        public SkipListSetIterator(SkipListSetItem<T> startItem, SkipListSubSet view) {
+            this.currentItem = startItem;
+            this.view = view;
+            this.expectedModCount = modCount;
+        }
+
+        //Returns false if we have reached the tail or the end of the view
+        @Override
+        public boolean hasNext() {
+            return currentItem != tail && (view == null || !view.tooHigh(currentItem.getPayload()));
+        }
+
+        //Returns the payload of the current iteration
+        @Override
+        public T next() {
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            if (!hasNext())
+                throw new NoSuchElementException();
+            lastItem = currentItem;
+            currentItem = currentItem.getNext(0);
+            return lastItem.getPayload();
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super T> action) {
+            //Walk the bottom level with everything in locals, checking for changes once at the end
+            SkipListSetItem<T> item = currentItem;
+            SkipListSetItem<T> last = lastItem;
+            for (; item != tail && (view == null || !view.tooHigh(item.getPayload())); item = item.getNext(0)) {
+                action.accept(item.getPayload());
+                last = item;
+            }
+            currentItem = item;
+            lastItem = last;
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
         }
 
-        //Returns false if the next iteration null
+        //Removes the item returned last. It keeps its links, so the iteration carries on past it
+        @Override
+        public void remove() {
+            if (lastItem == null)
+                throw new IllegalStateException("Error: No item to remove!");
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            cursor = removeIterated(lastItem, cursor);
+            lastItem = null;
+            expectedModCount = modCount;
+        }
+    }
+
+    //Descending iterator class. Walks the bottom level backwards along the previous links, and is fail-fast like
+    //SkipListSetIterator
+    class DescendingSkipListSetIterator implements Iterator<T> {
+        //Iterator item
+        SkipListSetItem<T> currentItem;
+        //Range view whose lower bound ends the iteration (null to run to the head)
+        SkipListSubSet view;
+        //Item returned last (null once it has been removed)
+        SkipListSetItem<T> lastItem;
+        //Value of modCount the iterator expects, and the cursor removals search from (made on the first one)
+        int expectedModCount;
+        SkipListSetCursor cursor;
+
+        //Constructor for iterating backwards from startItem down to the start of the view
+        public DescendingSkipListSetIterator(SkipListSetItem<T> startItem, SkipListSubSet view) {
+            this.currentItem = startItem;
+            this.view = view;
+            this.expectedModCount = modCount;
+        }
+
+        //Returns false if we have reached the head or the start of the view
         @Override
         public boolean hasNext() {
-            return currentItem != null;
+            return currentItem != head && (view == null || !view.tooLow(currentItem.getPayload()));
+        }
+
+        //Returns the payload of the current iteration
+        @Override
+        public T next() {
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            if (!hasNext())
+                throw new NoSuchElementException();
+            lastItem = currentItem;
+            currentItem = currentItem.getPrevious();
+            return lastItem.getPayload();
+        }
+
+        //Removes the item returned last. Its previous link is kept, so the iteration carries on past it
+        @Override
+        public void remove() {
+            if (lastItem == null)
+                throw new IllegalStateException("Error: No item to remove!");
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            cursor = removeIterated(lastItem, cursor);
+            lastItem = null;
+            expectedModCount = modCount;
+        }
+    }
+
+    /*
+    Spliterator class. It covers the items at positions rank up to (but not including) fence on the bottom level,
+    so its size is always exact. Splitting finds the item halfway between them with one descent that adds up
+    spans, which gives equal halves in O(log n) however the towers happen to be spread out. Each half then walks
+    the bottom level without allocating anything. The list must not be changed while a spliterator is in use.
+    */
+    class SkipListSetSpliterator implements Spliterator<T> {
+        //Next item, its position, and the position just past the last item covered
+        private SkipListSetItem<T> currentItem;
+        private int rank;
+        private final int fence;
+        //Value of modCount when the spliterator was created
+        private final int expectedModCount;
+
+        //Constructor
+        SkipListSetSpliterator(SkipListSetItem<T> startItem, int rank, int fence, int expectedModCount) {
+            this.currentItem = startItem;
+            this.rank = rank;
+            this.fence = fence;
+            this.expectedModCount = expectedModCount;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            if (rank >= fence)
+                return false;
+            T payload = currentItem.getPayload();
+            currentItem = currentItem.getNext(0);
+            rank++;
+            action.accept(payload);
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super T> action) {
+            //Walk the bottom level with everything in locals, checking for changes once at the end
+            SkipListSetItem<T> item = currentItem;
+            for (int position = rank; position < fence; position++) {
+                action.accept(item.getPayload());
+                item = item.getNext(0);
+            }
+            currentItem = item;
+            rank = fence;
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+        }
+
+        //Hands the first half of the remaining items to a new spliterator and keeps the second half
+        @Override
+        public Spliterator<T> trySplit() {
+            if (fence - rank < 2)
+                return null;
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            int middle = rank + (fence - rank) / 2;
+            Spliterator<T> firstHalf = new SkipListSetSpliterator(currentItem, rank, middle, expectedModCount);
+            currentItem = itemAt(middle);
+            rank = middle;
+            return firstHalf;
+        }
+
+        @Override
+        public long estimateSize() {
+            return fence - rank;
+        }
+
+        @Override
+        public int characteristics() {
+            return Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.SORTED | Spliterator.SIZED
+                | Spliterator.SUBSIZED;
+        }
+
+        //Items are in the list's order (null for natural order)
+        @Override
+        public Comparator<? super T> getComparator() {
+            return comparator;
+        }
+    }
+
+    /*
+    Answers whether another sorted set contains a payload, for payloads asked about in ascending order. Through a
+    SkipListSet it jumps forward on the upper levels from where the last answer was, and through any other sorted
+    set it steps an iterator, so a whole walk costs one pass over the other set at most.
+    */
+    static class SortedMembership<T> implements Predicate<T> {
+        //Order of the other set
+        private final Comparator<? super T> comparator;
+        //Other set, when it is a SkipListSet, and the first item not yet passed
+        private final SkipListSet<T> list;
+        private SkipListSetItem<T> item;
+        //Otherwise its iterator and the first payload not yet passed (null once it runs out)
+        private final Iterator<? extends T> iterator;
+        private T current;
+
+        //Constructor
+        @SuppressWarnings("unchecked")
+        SortedMembership(SortedSet<? extends T> other) {
+            comparator = (Comparator<? super T>) other.comparator();
+            if (other instanceof SkipListSet) {
+                list = (SkipListSet<T>) other;
+                item = list.head;
+                iterator = null;
+            }
+            else {
+                list = null;
+                iterator = other.iterator();
+                current = iterator.hasNext() ? iterator.next() : null;
+            }
+        }
+
+        @Override
+        public boolean test(T payload) {
+            if (list != null) {
+                item = list.seekFrom(item, payload);
+                return item != list.tail && compare(comparator, item.getPayload(), payload) == 0;
+            }
+            while (current != null && compare(comparator, current, payload) < 0)
+                current = iterator.hasNext() ? iterator.next() : null;
+            return current != null && compare(comparator, current, payload) == 0;
+        }
+    }
+
+    /*
+    Serialized form of a set: the number of items, then the payloads in ascending order. Only the bottom level is
+    written, and the towers are drawn again when the set is read back (in one linear pass), so the form is no
+    bigger than a list of the items and reading it never recurses down a chain of links.
+    */
+    private static class SerializedForm<T> implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        //Order of the set (null for natural order). It has to be serializable for the set to be
+        private final Comparator<? super T> comparator;
+        //Set being written, or the one built while reading
+        private transient SkipListSet<T> set;
+
+        //Constructor
+        SerializedForm(SkipListSet<T> set) {
+            this.comparator = set.comparator;
+            this.set = set;
+        }
+
+        private void writeObject(ObjectOutputStream out) throws IOException {
+            out.defaultWriteObject();
+            out.writeInt(set.size());
+            for (SkipListSetItem<T> currentItem = set.head.getNext(0); currentItem != set.tail; currentItem = currentItem.getNext(0))
+                out.writeObject(currentItem.getPayload());
+        }
+
+        @SuppressWarnings("unchecked")
+        private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+            in.defaultReadObject();
+            int size = in.readInt();
+            if (size < 0)
+                throw new InvalidObjectException("Error: Negative size!");
+            set = new SkipListSet<T>(comparator);
+            set.startBuild();
+            for (int i = 0; i < size; i++) {
+                T payload = (T) in.readObject();
+                if (!set.canAppend(payload))
+                    throw new InvalidObjectException("Error: Items are not in ascending order!");
+                set.append(payload);
+            }
+            set.finishBuild();
+        }
+
+        private Object readResolve() {
+            return set;
+        }
+    }
+
+    /*
+    Range view class. A view holds no items of its own: every method works on the skip list that created it, so
+    changes through the view show up in the list and the other way around. Each bound is a payload plus whether
+    it is included, and a null bound means the view is unbounded on that side. A descending view presents the same
+    range in reverse order. Finding either end of the range is one descent of the list, so iterating over k items
+    of a view costs O(log n + k).
+
+    Bounds and the helpers below are in the list's (ascending) order; the NavigableSet methods swap them around
+    for descending views.
+    */
+    class SkipListSubSet extends AbstractSet<T> implements NavigableSet<T> {
+        //Bounds of the view
+        private final T fromElement;
+        private final boolean fromInclusive;
+        private final T toElement;
+        private final boolean toInclusive;
+        //Whether the view is in descending order
+        private final boolean descending;
+
+        //Constructor
+        SkipListSubSet(T fromElement, boolean fromInclusive, T toElement, boolean toInclusive, boolean descending) {
+            this.fromElement = fromElement;
+            this.fromInclusive = fromInclusive;
+            this.toElement = toElement;
+            this.toInclusive = toInclusive;
+            this.descending = descending;
+        }
+
+        //Returns true if the payload is below the lower bound of the view
+        boolean tooLow(T payload) {
+            if (fromElement == null)
+                return false;
+            int comparison = compare(payload, fromElement);
+            return comparison < 0 || (comparison == 0 && !fromInclusive);
+        }
+
+        //Returns true if the payload is above the upper bound of the view
+        boolean tooHigh(T payload) {
+            if (toElement == null)
+                return false;
+            int comparison = compare(payload, toElement);
+            return comparison > 0 || (comparison == 0 && !toInclusive);
+        }
+
+        //Returns true if the payload is between the bounds of the view
+        private boolean inRange(T payload) {
+            return !tooLow(payload) && !tooHigh(payload);
+        }
+
+        //Returns true if the payload can be a bound of a view nested in this one
+        private boolean inRange(T payload, boolean inclusive) {
+            if (inclusive)
+                return inRange(payload);
+            return (fromElement == null || compare(payload, fromElement) >= 0)
+                && (toElement == null || compare(payload, toElement) <= 0);
+        }
+
+        //Returns the payload of the item if it's in the view, null otherwise
+        private T payloadInRange(SkipListSetItem<T> item) {
+            if (item == head || item == tail || !inRange(item.getPayload()))
+                return null;
+            return item.getPayload();
+        }
+
+        //Returns the lowest item in the view (or an item outside it, if the view is empty)
+        private SkipListSetItem<T> lowestItem() {
+            if (fromElement == null)
+                return head.getNext(0);
+            return fromInclusive ? ceilingItem(fromElement) : higherItem(fromElement);
+        }
+
+        //Returns the highest item in the view (or an item outside it, if the view is empty)
+        private SkipListSetItem<T> highestItem() {
+            if (toElement == null)
+                return tail.getPrevious();
+            return toInclusive ? floorItem(toElement) : lowerItem(toElement);
+        }
+
+        //Nearest-payload searches in ascending order, clamped to the view
+        private T ascendingCeiling(T payload) {
+            return tooLow(payload) ? payloadInRange(lowestItem()) : payloadInRange(ceilingItem(payload));
+        }
+        private T ascendingHigher(T payload) {
+            return tooLow(payload) ? payloadInRange(lowestItem()) : payloadInRange(higherItem(payload));
+        }
+        private T ascendingFloor(T payload) {
+            return tooHigh(payload) ? payloadInRange(highestItem()) : payloadInRange(floorItem(payload));
+        }
+        private T ascendingLower(T payload) {
+            return tooHigh(payload) ? payloadInRange(highestItem()) : payloadInRange(lowerItem(payload));
+        }
+
+        //Counts the items in the view as the difference between the positions of its bounds (two descents)
+        @Override
+        public int size() {
+            return countRange(fromElement, fromInclusive, toElement, toInclusive);
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return payloadInRange(lowestItem()) == null;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public boolean contains(Object o) {
+            T payload = (T)o;
+            return inRange(payload) && SkipListSet.this.contains(payload);
+        }
+
+        @Override
+        public Iterator<T> iterator() {
+            if (descending)
+                return new DescendingSkipListSetIterator(highestItem(), this);
+            return new SkipListSetIterator(lowestItem(), this);
+        }
+
+        //An ascending view covers a run of positions on the bottom level, found with two descents
+        @Override
+        public Spliterator<T> spliterator() {
+            if (descending)
+                return super.spliterator();
+            int below = fromElement == null ? 0 : countBelow(fromElement, !fromInclusive);
+            int upTo = toElement == null ? numItems : countBelow(toElement, toInclusive);
+            if (upTo <= below)
+                return Spliterators.emptySpliterator();
+            return new SkipListSetSpliterator(itemAt(below + 1), below + 1, upTo + 1, modCount);
+        }
+
+        @Override
+        public Iterator<T> descendingIterator() {
+            return descendingSet().iterator();
+        }
+
+        //Adds the payload to the list, if it's in the view's range
+        @Override
+        public boolean add(T e) {
+            if (!inRange(e))
+                throw new IllegalArgumentException("Error: Element is outside the range of this view!");
+            return SkipListSet.this.add(e);
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public boolean remove(Object o) {
+            T payload = (T)o;
+            return inRange(payload) && SkipListSet.this.remove(payload);
+        }
+
+        //Removes every item in the view from the list, in one cut (see removeRange())
+        @Override
+        public void clear() {
+            removeRange(fromElement, fromInclusive, toElement, toInclusive);
+        }
+
+        @Override
+        public Comparator<? super T> comparator() {
+            return descending ? Collections.reverseOrder(comparator) : comparator;
+        }
+
+        //Returns the first item in the view (null if the view is empty)
+        @Override
+        public T first() {
+            return payloadInRange(descending ? highestItem() : lowestItem());
+        }
+
+        //Returns the last item in the view (null if the view is empty)
+        @Override
+        public T last() {
+            return payloadInRange(descending ? lowestItem() : highestItem());
+        }
+
+        //Nearest-payload searches, in the view's order
+        @Override
+        public T lower(T e) {
+            return descending ? ascendingHigher(e) : ascendingLower(e);
+        }
+
+        @Override
+        public T floor(T e) {
+            return descending ? ascendingCeiling(e) : ascendingFloor(e);
+        }
+
+        @Override
+        public T ceiling(T e) {
+            return descending ? ascendingFloor(e) : ascendingCeiling(e);
+        }
+
+        @Override
+        public T higher(T e) {
+            return descending ? ascendingLower(e) : ascendingHigher(e);
+        }
+
+        //Removes and returns the first item in the view (null if the view is empty)
+        @Override
+        public T pollFirst() {
+            T payload = first();
+            if (payload != null)
+                SkipListSet.this.remove(payload);
+            return payload;
+        }
+
+        //Removes and returns the last item in the view (null if the view is empty)
+        @Override
+        public T pollLast() {
+            T payload = last();
+            if (payload != null)
+                SkipListSet.this.remove(payload);
+            return payload;
+        }
+
+        //Returns the same range in the opposite order
+        @Override
+        public NavigableSet<T> descendingSet() {
+            return new SkipListSubSet(fromElement, fromInclusive, toElement, toInclusive, !descending);
+        }
+
+        //Returns a view of the part of this view between the two bounds, given in this view's order
+        @Override
+        public NavigableSet<T> subSet(T fromElement, boolean fromInclusive, T toElement, boolean toInclusive) {
+            if (fromElement == null || toElement == null)
+                throw new NullPointerException();
+            if (descending)
+                return nestedView(toElement, toInclusive, fromElement, fromInclusive);
+            return nestedView(fromElement, fromInclusive, toElement, toInclusive);
+        }
+
+        //Returns a view of the part of this view before toElement, in this view's order
+        @Override
+        public NavigableSet<T> headSet(T toElement, boolean inclusive) {
+            if (toElement == null)
+                throw new NullPointerException();
+            if (descending)
+                return nestedView(toElement, inclusive, null, false);
+            return nestedView(null, false, toElement, inclusive);
+        }
+
+        //Returns a view of the part of this view after fromElement, in this view's order
+        @Override
+        public NavigableSet<T> tailSet(T fromElement, boolean inclusive) {
+            if (fromElement == null)
+                throw new NullPointerException();
+            if (descending)
+                return nestedView(null, false, fromElement, inclusive);
+            return nestedView(fromElement, inclusive, null, false);
+        }
+
+        @Override
+        public SortedSet<T> subSet(T fromElement, T toElement) {
+            return subSet(fromElement, true, toElement, false);
+        }
+
+        @Override
+        public SortedSet<T> headSet(T toElement) {
+            return headSet(toElement, false);
+        }
+
+        @Override
+        public SortedSet<T> tailSet(T fromElement) {
+            return tailSet(fromElement, true);
+        }
+
+        //Builds a view nested in this one from ascending bounds, where a null bound means "same as this view" (the
+        //public methods have already turned away null bounds from the caller)
+        private NavigableSet<T> nestedView(T lowElement, boolean lowInclusive, T highElement, boolean highInclusive) {
+            if (lowElement != null && highElement != null && compare(lowElement, highElement) > 0)
+                throw new IllegalArgumentException("Error: fromElement is greater than toElement!");
+            if (lowElement == null) {
+                lowElement = fromElement;
+                lowInclusive = fromInclusive;
+            }
+            else if (!inRange(lowElement, lowInclusive))
+                throw new IllegalArgumentException("Error: Bound is outside the range of this view!");
+            if (highElement == null) {
+                highElement = toElement;
+                highInclusive = toInclusive;
+            }
+            else if (!inRange(highElement, highInclusive))
+                throw new IllegalArgumentException("Error: Bound is outside the range of this view!");
+            return new SkipListSubSet(lowElement, lowInclusive, highElement, highInclusive, descending);
+        }
+    }
+
+    /*
+    Cursor class (a "finger"). A cursor remembers the search path of the last payload it was moved to: for each
+    level, the last item on that level before the payload, and its position. The next search starts from that
+    path instead of from the head, climbing only as many levels as it needs to get past the target before
+    descending again. Moving a distance of d items therefore takes O(log d) comparisons rather than O(log n),
+    which makes runs of nearby or ascending payloads cheap.
+
+    If the list is changed other than through this cursor, its path is thrown away and the next search starts
+    from the head again.
+    */
+    public class SkipListSetCursor {
+        //Search path, one item per level, and the positions of those items
+        private final SkipListSetItem<T>[] path;
+        private final int[] pathRank;
+        //Value of modCount when the path was last known to be valid
+        private int expectedModCount;
+
+        //Constructor
+        SkipListSetCursor() {
+            path = newItemArray(MAX_LEVEL);
+            pathRank = new int[MAX_LEVEL];
+            reset();
+        }
+
+        //Moves the cursor back before the first item
+        private void reset() {
+            Arrays.fill(path, head);
+            Arrays.fill(pathRank, 0);
+            expectedModCount = modCount;
+        }
+
+        //Moves the cursor to payload, returning the item before it on the bottom level
+        private SkipListSetItem<T> moveTo(T payload) {
+            if (expectedModCount != modCount)
+                reset();
+
+            int level = 0;
+            SkipListSetItem<T> previousItem = path[0];
+            if (previousItem == head || compare(previousItem.getPayload(), payload) < 0) {
+                //Going forward: climb while the next item on the level above is still before payload
+                while (level < currentHeight) {
+                    SkipListSetItem<T> nextItem = path[level + 1].getNext(level + 1);
+                    if (nextItem == tail || compare(nextItem.getPayload(), payload) >= 0)
+                        break;
+                    level++;
+                }
+            }
+            else {
+                //Going backward: climb until the path is before payload again (or start over from the head)
+                while (level < currentHeight && path[level] != head && compare(path[level].getPayload(), payload) >= 0)
+                    level++;
+                if (path[level] != head && compare(path[level].getPayload(), payload) >= 0) {
+                    reset();
+                    level = currentHeight;
+                }
+                //The path below that level is past payload, so the descent must not start from it
+                for (int lowerLevel = 0; lowerLevel < level; lowerLevel++) {
+                    path[lowerLevel] = path[level];
+                    pathRank[lowerLevel] = pathRank[level];
+                }
+            }
+            return findPredecessorsFrom(payload, path, pathRank, level);
+        }
+
+        //Moves the cursor to e. Returns true if e is in the list
+        public boolean seek(T e) {
+            SkipListSetItem<T> nextItem = moveTo(e).getNext(0);
+            return nextItem != tail && compare(nextItem.getPayload(), e) == 0;
+        }
+
+        //Returns true if e is in the list, searching from the cursor (which moves to e)
+        public boolean containsNear(T e) {
+            return seek(e);
+        }
+
+        //Adds e to the list, searching from the cursor (which moves to e). Returns false if it was already there
+        public boolean insertNear(T e) {
+            return insertItemNear(e) != null;
+        }
+
+        //Removes e from the list, searching from the cursor (which moves to e). Returns false if it wasn't there
+        public boolean removeNear(T e) {
+            if (!unlinkNear(e))
+                return false;
+            afterMutations(1);
+            return true;
+        }
+
+        //Adds e as insertNear() does, returning its new item (null if it was already there)
+        private SkipListSetItem<T> insertItemNear(T e) {
+            SkipListSetItem<T> previousItem = moveTo(e);
+            SkipListSetItem<T> nextItem = previousItem.getNext(0);
+            if (nextItem != tail && compare(nextItem.getPayload(), e) == 0)
+                return null;
+            SkipListSetItem<T> newItem = insert(e, previousItem, path, pathRank);
+            expectedModCount = modCount;
+            afterMutations(1);
+            return newItem;
+        }
+
+        //Unlinks e as removeNear() does, but leaves the work that follows a mutation to the caller
+        private boolean unlinkNear(T e) {
+            SkipListSetItem<T> previousItem = moveTo(e);
+            SkipListSetItem<T> currentItem = previousItem.getNext(0);
+            if (currentItem == tail || compare(currentItem.getPayload(), e) != 0)
+                return false;
+            unlink(currentItem, path);
+            expectedModCount = modCount;
+            return true;
+        }
+
+        //Returns the index in sorted order that e has (or would have) in the list, after moving the cursor to it
+        public int indexOf(T e) {
+            moveTo(e);
+            return pathRank[0];
+        }
+    }
+
+    /*
+    Snapshot class. A snapshot is a read-only view of the list as it was when snapshot() was called, and later
+    changes to the list don't show up in it. Nothing is copied: the snapshot just remembers the version it was
+    taken at. While any snapshot is open, every item added and every bottom-level link changed is stamped with
+    the current version, and a link that an open snapshot might still need is kept in its item's history before
+    it's overwritten. Walking the bottom level with the links as they were at the snapshot's version gives back
+    exactly the list it saw, including items that have since been removed.
+
+    Changes pay one stamp each (and a history entry for a link changed for the first time since the newest
+    snapshot). Searches descend the list as it is now, skipping items added since the snapshot, so contains()
+    stays O(log n) plus the number of changes made nearby since the snapshot.
+
+    A snapshot can be read without locking on other threads while one thread changes the list, as long as it was
+    handed over safely (through a thread start, a concurrent collection, a volatile field and so on). Links are
+    written with release stores and read back with acquire loads, and linkVersion and history are volatile and
+    moved on before a link changes, so a reader either sees a link that was already there at the snapshot or finds
+    that it changed and takes the old one from the history. The list itself is still only safe for one thread.
+
+    Histories are dropped when the last open snapshot is closed (or garbage collected), so close snapshots once
+    they're no longer needed. Closing only queues the snapshot for release, and the writer drops the histories the
+    next time it changes the list or takes a snapshot.
+    */
+    public class SkipListSetSnapshot extends AbstractSet<T> implements SortedSet<T>, AutoCloseable {
+        //Version of the list this snapshot sees, and its number of items then
+        private final int snapshotVersion;
+        private final int snapshotSize;
+        //Snapshot that this is a range view of (itself if it isn't a view), and its entry in openSnapshots
+        private final SkipListSetSnapshot root;
+        private final SnapshotReference reference;
+        //Bounds of the view: fromElement is included and toElement isn't (null for no bound)
+        private final T fromElement;
+        private final T toElement;
+        private volatile boolean closed;
+
+        //Constructor for a new snapshot of the whole list
+        SkipListSetSnapshot(int snapshotVersion, int snapshotSize) {
+            this.snapshotVersion = snapshotVersion;
+            this.snapshotSize = snapshotSize;
+            this.root = this;
+            this.reference = new SnapshotReference(this, releasedSnapshots);
+            this.fromElement = null;
+            this.toElement = null;
+        }
+
+        //Constructor for a range view of a snapshot
+        SkipListSetSnapshot(SkipListSetSnapshot root, T fromElement, T toElement) {
+            this.snapshotVersion = root.snapshotVersion;
+            this.snapshotSize = root.snapshotSize;
+            this.root = root;
+            this.reference = root.reference;
+            this.fromElement = fromElement;
+            this.toElement = toElement;
+        }
+
+        //Snapshot iterator class. Walks the bottom level along the links as they were at the snapshot's version
+        class SnapshotIterator implements Iterator<T> {
+            //Iterator item
+            SkipListSetItem<T> currentItem;
+
+            //Constructor
+            SnapshotIterator(SkipListSetItem<T> startItem) {
+                this.currentItem = startItem;
+            }
+
+            //Returns false if we have reached the tail or the end of the view
+            @Override
+            public boolean hasNext() {
+                return currentItem != tail && !tooHigh(currentItem.getPayload());
+            }
+
+            //Returns the payload of the current iteration
+            @Override
+            public T next() {
+                checkOpen();
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                T payload = currentItem.getPayload();
+                currentItem = currentItem.getNextAt(snapshotVersion);
+                return payload;
+            }
+
+            //Remove throws exception
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException("Error: Method remove() not supported!", null);
+            }
+        }
+
+        //Returns true if the payload is below the lower bound of the view
+        private boolean tooLow(T payload) {
+            return fromElement != null && compare(payload, fromElement) < 0;
+        }
+
+        //Returns true if the payload is at or above the upper bound of the view
+        private boolean tooHigh(T payload) {
+            return toElement != null && compare(payload, toElement) >= 0;
+        }
+
+        //Histories may have been dropped once a snapshot is closed, so it can't be read any more
+        private void checkOpen() {
+            if (root.closed)
+                throw new IllegalStateException("Error: Snapshot is closed!");
+        }
+
+        //Returns the number of items in the snapshot. Views have to count theirs
+        @Override
+        public int size() {
+            checkOpen();
+            if (fromElement == null && toElement == null)
+                return snapshotSize;
+            int count = 0;
+            for (Iterator<T> iterator = iterator(); iterator.hasNext(); iterator.next())
+                count++;
+            return count;
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return !iterator().hasNext();
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public boolean contains(Object o) {
+            checkOpen();
+            T payload = (T)o;
+            if (tooLow(payload) || tooHigh(payload))
+                return false;
+            SkipListSetItem<T> item = ceilingAt(payload, snapshotVersion);
+            return item != tail && compare(item.getPayload(), payload) == 0;
+        }
+
+        //Returns an iterator over the items the snapshot sees
+        @Override
+        public Iterator<T> iterator() {
+            checkOpen();
+            return new SnapshotIterator(fromElement == null ? head.getNextAt(snapshotVersion) : ceilingAt(fromElement, snapshotVersion));
+        }
+
+        //Returns the first item in the snapshot (null if it's empty)
+        @Override
+        public T first() {
+            Iterator<T> iterator = iterator();
+            return iterator.hasNext() ? iterator.next() : null;
+        }
+
+        //Returns the last item in the snapshot (null if it's empty)
+        @Override
+        public T last() {
+            checkOpen();
+            SkipListSetItem<T> item = lowerAt(toElement, snapshotVersion);
+            return item == head || tooLow(item.getPayload()) ? null : item.getPayload();
+        }
+
+        @Override
+        public Comparator<? super T> comparator() {
+            return comparator;
+        }
+
+        //Returns a view of the items from fromElement up to (but not including) toElement
+        @Override
+        public SortedSet<T> subSet(T fromElement, T toElement) {
+            if (compare(fromElement, toElement) > 0)
+                throw new IllegalArgumentException("Error: fromElement is greater than toElement!");
+            return nestedView(fromElement, toElement);
+        }
+
+        //Returns a view of the items before toElement
+        @Override
+        public SortedSet<T> headSet(T toElement) {
+            return nestedView(null, Objects.requireNonNull(toElement));
+        }
+
+        //Returns a view of the items from fromElement onwards
+        @Override
+        public SortedSet<T> tailSet(T fromElement) {
+            return nestedView(Objects.requireNonNull(fromElement), null);
+        }
+
+        //Builds a view nested in this one, where a null bound means "same as this view"
+        private SortedSet<T> nestedView(T lowElement, T highElement) {
+            if (lowElement == null)
+                lowElement = fromElement;
+            else if (tooLow(lowElement) || (toElement != null && compare(lowElement, toElement) > 0))
+                throw new IllegalArgumentException("Error: Bound is outside the range of this view!");
+            if (highElement == null)
+                highElement = toElement;
+            else if (tooLow(highElement) || (toElement != null && compare(highElement, toElement) > 0))
+                throw new IllegalArgumentException("Error: Bound is outside the range of this view!");
+            return new SkipListSetSnapshot(root, lowElement, highElement);
+        }
+
+        //Snapshots are read only
+        @Override
+        public boolean add(T e) {
+            throw new UnsupportedOperationException("Error: Method add() not supported!", null);
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            throw new UnsupportedOperationException("Error: Method remove() not supported!", null);
+        }
+
+        @Override
+        public void clear() {
+            throw new UnsupportedOperationException("Error: Method clear() not supported!", null);
+        }
+
+        //Releases the snapshot (and every view of it) so the list can stop keeping old links for it
+        @Override
+        public void close() {
+            if (root.closed)
+                return;
+            root.closed = true;
+            //The queue is thread safe, so a reader can close its snapshot while the writer carries on
+            reference.enqueue();
+        }
+    }
+
+    //Entry for an open snapshot. It only weakly refers to the snapshot, so one that's dropped without being closed
+    //turns up in releasedSnapshots once it's garbage collected
+    private static class SnapshotReference extends WeakReference<Object> {
+        SnapshotReference(Object snapshot, ReferenceQueue<Object> queue) {
+            super(snapshot, queue);
+        }
+    }
+
+    /*
+    Item wrapper class. Each element of the list is a single item that holds one forward link per level
+    it appears on, so a tower of height h is one object and one array instead of h linked objects. Only
+    the bottom level keeps a backward link. The class is static so items don't carry a reference to the set.
+
+    Each link also records its span: how many positions along the bottom level it moves forward. Adding up
+    spans during a descent gives the position of an item, which is how get(index) and rank work.
+    */
+    static class SkipListSetItem<T> {
+        //Payload
+        private T payload;
+
+        //Links
+        private SkipListSetItem<T>[] next; //next[i] is the next item on level i
+        private SkipListSetItem<T> previous; //previous item on the bottom level
+        private int[] span; //span[i] is the number of bottom-level positions the link on level i moves forward
+
+        //Snapshot versions: when the item was added, when its bottom-level link last changed, and the bottom-level
+        //links it had before that which open snapshots might still need (newest first)
+        private int version;
+        private volatile int linkVersion;
+        private volatile LinkHistory<T> history;
+
+        //Links are written with release stores, so a snapshot read on another thread that picks one up with an
+        //acquire load also sees the item it points to fully built (see SkipListSetSnapshot)
+        private static final VarHandle NEXT;
+        private static final VarHandle LINK = MethodHandles.arrayElementVarHandle(SkipListSetItem[].class);
+        static {
+            try {
+                NEXT = MethodHandles.lookup().findVarHandle(SkipListSetItem.class, "next", SkipListSetItem[].class);
+            } catch (ReflectiveOperationException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+
+        //Getters
+        public T getPayload() { return payload; }
+        public SkipListSetItem<T> getNext(int level) { return next[level]; }
+        public SkipListSetItem<T> getPrevious() { return previous; }
+        public int getSpan(int level) { return span[level]; }
+        public int getLevels() { return next.length; }
+
+        //Setters
+        public void setPayload(T payload) { this.payload = payload; }
+        public void setNext(int level, SkipListSetItem<T> next) { LINK.setRelease(this.next, level, next); }
+        public void setPrevious(SkipListSetItem<T> previous) { this.previous = previous; }
+        public void setSpan(int level, int span) { this.span[level] = span; }
+        public int getVersion() { return version; }
+        public void setVersion(int version) { this.version = version; this.linkVersion = version; }
+
+        //Returns the next item on the level as published to a reader on another thread (null if the item
+        //doesn't reach that level any more)
+        @SuppressWarnings("unchecked")
+        public SkipListSetItem<T> getNextAcquire(int level) {
+            SkipListSetItem<T>[] links = (SkipListSetItem<T>[]) NEXT.getAcquire(this);
+            return level < links.length ? (SkipListSetItem<T>) LINK.getAcquire(links, level) : null;
+        }
+
+        //Returns the next item on the bottom level as it was at the given snapshot version. The link is read
+        //before linkVersion: versionLink moves linkVersion on before the link changes, so if linkVersion is still
+        //old enough then the link read was the one the snapshot saw
+        public SkipListSetItem<T> getNextAt(int snapshotVersion) {
+            SkipListSetItem<T> nextItem = getNextAcquire(0);
+            if (snapshotVersion >= linkVersion)
+                return nextItem;
+            for (LinkHistory<T> entry = history; entry != null; entry = entry.getOlder())
+                if (snapshotVersion >= entry.getVersion())
+                    return entry.getNext();
+            return nextItem;
+        }
+
+        //Called before the bottom-level link changes at the given version. If a snapshot as new as newestSnapshot
+        //could see the current link, it goes into the history first. Returns true if the history was empty
+        public boolean versionLink(int version, int newestSnapshot) {
+            boolean started = false;
+            if (linkVersion <= newestSnapshot) {
+                started = history == null;
+                history = new LinkHistory<T>(next[0], linkVersion, history);
+            }
+            linkVersion = version;
+            return started;
+        }
+
+        //Forgets the old links once no snapshot needs them
+        public void clearHistory() { history = null; }
+
+        //Changes the number of levels of this item, keeping the links of the levels it still has
+        public void setLevels(int levels) {
+            SkipListSetItem<T>[] newNext = newItemArray(levels);
+            System.arraycopy(next, 0, newNext, 0, Math.min(levels, next.length));
+            NEXT.setRelease(this, newNext);
+            span = Arrays.copyOf(span, levels);
+        }
+
+        //Constructor
+        public SkipListSetItem(T payload, int levels) {
+            this.payload = payload;
+            this.next = newItemArray(levels);
+            this.previous = null;
+            this.span = new int[levels];
+        }
+    }
+
+    //An old bottom-level link of an item: the item it pointed to from the given version on, until the next newer
+    //entry (or the item's current link) took over
+    static class LinkHistory<T> {
+        private final SkipListSetItem<T> next;
+        private final int version;
+        private final LinkHistory<T> older;
+
+        //Getters
+        public SkipListSetItem<T> getNext() { return next; }
+        public int getVersion() { return version; }
+        public LinkHistory<T> getOlder() { return older; }
+
+        //Constructor
+        public LinkHistory(SkipListSetItem<T> next, int version, LinkHistory<T> older) {
+            this.next = next;
+            this.version = version;
+            this.older = older;
+        }
+    }
+
+    //Maximum number of levels any item (including the head) can have
+    static final int MAX_LEVEL = 32;
+
+    //Head and tail sentinels. The head has MAX_LEVEL links, the tail has none and is never replaced
+    private final SkipListSetItem<T> head;
+    private final SkipListSetItem<T> tail;
+
+    //Scratch arrays holding the last item before the search position on each level, and its position on the
+    //bottom level (the head is position 0). Reused by add/remove
+    private final SkipListSetItem<T>[] update;
+    private final int[] updateRank;
+
+    //Decides how many levels each new item gets
+    private final LevelGenerator levelGenerator;
+
+    //Order of the items, or null for natural ordering. Searches have a separate loop for each, so sets in natural
+    //order call compareTo() directly instead of going through a comparator
+    private final Comparator<? super T> comparator;
+
+    //Cursor used by add() to append past the last item without descending from the head
+    private final SkipListSetCursor appendCursor;
+
+    //Number of items on each level (levelCounts[0] is the number of items in the list)
+    private final int[] levelCounts;
+
+    //Incremental repair. When the number of items on some level drifts too far from what the level generator
+    //should give, a sweep along the bottom level re-draws every item's height, a few items per mutation.
+    //repairPath is the search path of the sweep (valid while repairModCount is modCount) and repairPayload is
+    //the next item it will re-draw
+    private final SkipListSetItem<T>[] repairPath;
+    private final int[] repairPathRank;
+    private boolean repairing;
+    private T repairPayload;
+    private int repairModCount;
+    private int mutationsSinceCheck;
+
+    //Snapshots (see SkipListSetSnapshot). version goes up each time one is taken and newestSnapshot is the version
+    //of the last one. openSnapshots holds an entry for each snapshot not yet closed, and versionedItems lists the
+    //items with a link history so it can be dropped once they're all closed. Created by the first snapshot
+    private int version;
+    private int newestSnapshot;
+    private Set<SnapshotReference> openSnapshots;
+    private ReferenceQueue<Object> releasedSnapshots;
+    private List<SkipListSetItem<T>> versionedItems;
+
+    //Bounds. After every mutation (other than a removal through an iterator), items beyond capacity, and items whose
+    //timestamp is timeToLive or more before the clock, are cut off the front of the list and handed to
+    //evictionListener (if there is one)
+    private int capacity = Integer.MAX_VALUE;
+    private ToLongFunction<? super T> timestamp;
+    private long timeToLive;
+    private LongSupplier clock;
+    private Consumer<? super T> evictionListener;
+
+    //Binary format used by writeTo() and readFrom()
+    private static final int FORMAT_MAGIC = 0x534B4C42; //"SKLB"
+    private static final int FORMAT_VERSION = 1;
+    private static final int FORMAT_HEADER_SIZE = 16; //magic, version and number of items
+    private static final int BLOCK_SIZE = 1 << 16;
+
+    //How often the level distribution is checked, how far off it can be, and how fast a repair goes
+    private static final int HEALTH_CHECK_INTERVAL = 64; //mutations between checks
+    private static final int HEALTH_CHECK_MIN_ITEMS = 256; //levels expected to hold fewer items are too noisy to check
+    private static final int REPAIR_STEPS = 2; //items re-drawn per mutation while a repair is under way
+
+    //Other data types
+    private int modCount; //number of times items have been added, removed or relinked
+    private int currentHeight; //current height of the skip list (highest level in use above the bottom)
+    private int maxHeight; //maximum height of the skip list
+    private int heightChanges; //this value changes based on how much we grow/shrink the max height
+    private int numItems; //number of items in the list
+
+    //Search and shape counters, or null if they aren't being kept
+    private SkipListSetMetrics metrics;
+
+
+    //Constructors
+
+    //Builds a new, empty skip list
+    public SkipListSet() {
+        this(LevelGenerator.DEFAULT);
+    }
+
+    //Builds a new, empty skip list whose items get their levels from the given generator. Use a seeded generator
+    //to get the same shape every time, or one with a lower probability to trade search speed for memory
+    public SkipListSet(LevelGenerator levelGenerator) {
+        this(null, levelGenerator);
+    }
+
+    //Builds a new, empty skip list ordered by the given comparator (null for natural ordering)
+    public SkipListSet(Comparator<? super T> comparator) {
+        this(comparator, LevelGenerator.DEFAULT);
+    }
+
+    //Builds a new, empty skip list ordered by the given comparator, whose items get their levels from the generator
+    public SkipListSet(Comparator<? super T> comparator, LevelGenerator levelGenerator) {
+        this.comparator = comparator;
+        this.levelGenerator = Objects.requireNonNull(levelGenerator);
+        head = new SkipListSetItem<T>(null, MAX_LEVEL);
+        tail = new SkipListSetItem<T>(null, 0);
+        update = newItemArray(MAX_LEVEL);
+        updateRank = new int[MAX_LEVEL];
+        levelCounts = new int[MAX_LEVEL];
+        repairPath = newItemArray(MAX_LEVEL);
+        repairPathRank = new int[MAX_LEVEL];
+        clear();
+        appendCursor = new SkipListSetCursor();
+    }
+
+    //Builds a new skip list then adds all the items in c to it. If c is already sorted this takes one linear pass
+    //(see addAll)
+    public SkipListSet(Collection<? extends T> c) {
+        this();
+        addAll(c);
+    }
+
+    //Return the number of items in the skip list
+    @Override
+    public int size() {
+        return numItems;
+    }
+
+    //Return true if the list is empty, false otherwise
+    @Override
+    public boolean isEmpty() {
+        return (numItems == 0);
+    }
+
+    //Can suppress unchecked cast warning
+    @Override
+    public boolean contains(Object o) {
+        //Type cast
+        T payload = (T)o;
+        //find the item (or the item before it, if it's not there)
+        SkipListSetItem<T> foundItem = traverse(payload);
+        //If it's the item we're looking for, return true
+        if (foundItem != head && compare(payload, foundItem.getPayload()) == 0)
+            return true;
+        //Otherwise return false
+        return false;
+    }
+
+    //Returns a new iterator
+    @Override
+    public Iterator<T> iterator() {
+        return new SkipListSetIterator();
+    }
+
+    //Returns a spliterator that splits into equal halves, so parallel streams can use every core
+    @Override
+    public Spliterator<T> spliterator() {
+        return new SkipListSetSpliterator(head.getNext(0), 1, numItems + 1, modCount);
+    }
+
+
+    @Override
+    public Object[] toArray() {
+        //Array and integer to iterate through the array
+        Object[] array = new Object[numItems];
+        int i = 0;
+
+        //For each item on the bottom level, add the payload to the array
+        for (SkipListSetItem<T> currentItem = head.getNext(0); currentItem != tail; currentItem = currentItem.getNext(0)) {
+            array[i] = currentItem.getPayload();
+            i++;
+        }
+
+        //Return the array
+        return array;
+    }
+
+    //Type casts the toArray function to T[]
+    @Override
+    public <T> T[] toArray(T[] a) {
+        return (T[])toArray();
+    }
+
+    //Adds e, returning false if it was already in the list. An item that is evicted as soon as it's added (with a
+    //capacity of 0, or a time to live it's already past) doesn't count as added either
+    @Override
+    public boolean add(T e) {
+        //If the item was already in the skip list, addItem() returns it without changing anything (the size can't
+        //tell, since adding an item can evict another)
+        int oldModCount = modCount;
+        return addItem(e) != null && modCount != oldModCount;
+    }
+
+    //Can suppress unchecked cast warning
+    @Override
+    public boolean remove(Object o) {
+        //Type cast
+        T payload = (T)o;
+        //If the item we're looking for is not in the skip list, removeItem() returns null
+        return removeItem(payload) != null;
+    }
+
+    //Looks up a batch of payloads at once, returning a BitSet with bit i set if payloads[i] is in the list. The
+    //payloads are put in order (unless they already are) and found in one forward sweep, each search carrying on
+    //from the last one's path and only climbing as many levels as the gap between them needs, so a batch of
+    //nearby payloads costs about one pass over the part of the list it spans instead of a descent per payload
+    public BitSet containsEach(T[] payloads) {
+        SkipListSetItem<T>[] foundItems = findEach(payloads);
+        BitSet found = new BitSet(payloads.length);
+        for (int i = 0; i < foundItems.length; i++)
+            if (foundItems[i] != null)
+                found.set(i);
+        return found;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public boolean containsAll(Collection<?> c) {
+        //If c is in the same order, jump forward through the list instead of searching from the head each time
+        if (isSameOrder(c)) {
+            SortedMembership<T> membership = new SortedMembership<T>(this);
+            for (Object o : c)
+                if (!membership.test((T)o)) return false;
+            return true;
+        }
+        for (Object o : c)
+            if(!contains(o)) return false;
+        return true;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public boolean addAll(Collection<? extends T> c) {
+        //Sort the new items, unless they come from a set that is already in the same order. The sort is linear
+        //when they are already in order
+        Object[] payloads = c.toArray();
+        if (!isSameOrder(c))
+            Arrays.sort(payloads, (Comparator<Object>) comparator);
+
+        int oldSize = numItems;
+        int start = 0;
+        //An empty list is built in one linear pass, appending each item after the last (see append). Snapshots
+        //can't see appended links, so with one open the items are merged in like any other
+        if (numItems == 0 && !snapshotsOpen()) {
+            startBuild();
+            for (; start < payloads.length; start++) {
+                T payload = (T)payloads[start];
+                if (!canAppend(payload)) {
+                    //Skip repeats in c. Anything else out of order is left to the merge below
+                    if (compare(update[0].getPayload(), payload) == 0)
+                        continue;
+                    break;
+                }
+                append(payload);
+            }
+            finishBuild();
+        }
+
+        //Merge the rest into the list in one forward sweep. Each search starts from the path of the previous one,
+        //so no level is walked more than once
+        for (int level = 0; level <= currentHeight; level++) {
+            update[level] = head;
+            updateRank[level] = 0;
+        }
+        for (int i = start; i < payloads.length; i++) {
+            T payload = (T)payloads[i];
+            SkipListSetItem<T> previousItem = findPredecessorsFrom(payload, update, updateRank, currentHeight);
+            SkipListSetItem<T> nextItem = previousItem.getNext(0);
+            //Skip items that are already in the list (including repeats in c)
+            if (nextItem != tail && compare(nextItem.getPayload(), payload) == 0)
+                continue;
+            if (previousItem != head && compare(previousItem.getPayload(), payload) == 0)
+                continue;
+            insert(payload, previousItem, update, updateRank);
+        }
+        int added = numItems - oldSize;
+        afterMutations(added);
+        return added > 0;
+    }
+
+    //Removes every item that isn't in c (intersection in place), in one walk along the bottom level. If c is in
+    //the same order it is walked alongside the list, otherwise each item is looked up with c.contains()
+    @SuppressWarnings("unchecked")
+    @Override
+    public boolean retainAll(Collection<?> c) {
+        Predicate<T> keep;
+        if (isSameOrder(c))
+            keep = new SortedMembership<T>((SortedSet<T>) c);
+        else
+            keep = payload -> c.contains(payload);
+        return sweep(keep) > 0;
+    }
+
+    //Removes every item that matches filter, in one walk along the bottom level that splices out each run of
+    //matching items without searching for any of them
+    @Override
+    public boolean removeIf(Predicate<? super T> filter) {
+        Objects.requireNonNull(filter);
+        return sweep(payload -> !filter.test(payload)) > 0;
+    }
+
+    //Removes all items in a collection of items from the skip list, if they exist (difference in place)
+    @SuppressWarnings("unchecked")
+    @Override
+    public boolean removeAll(Collection<?> c) {
+        //Sort them, then remove them in one forward sweep like addAll
+        Object[] payloads = c.toArray();
+        if (!isSameOrder(c))
+            Arrays.sort(payloads, (Comparator<Object>) comparator);
+        for (int level = 0; level <= currentHeight; level++) {
+            update[level] = head;
+            updateRank[level] = 0;
+        }
+        int oldSize = numItems;
+        for (Object o : payloads) {
+            T payload = (T)o;
+            SkipListSetItem<T> previousItem = findPredecessorsFrom(payload, update, updateRank, currentHeight);
+            SkipListSetItem<T> currentItem = previousItem.getNext(0);
+            //The path stays in front of the removed item, so the sweep carries on from there
+            if (currentItem != tail && compare(currentItem.getPayload(), payload) == 0)
+                unlink(currentItem, update);
+        }
+        int removed = oldSize - numItems;
+        afterMutations(removed);
+        return removed > 0;
+    }
+
+    //Adds the items of c that aren't in the list and removes the ones that are (symmetric difference in place),
+    //in one forward sweep like addAll. Returns true if the list changed
+    @SuppressWarnings("unchecked")
+    public boolean toggleAll(Collection<? extends T> c) {
+        Object[] payloads = c.toArray();
+        if (!isSameOrder(c))
+            Arrays.sort(payloads, (Comparator<Object>) comparator);
+        for (int level = 0; level <= currentHeight; level++) {
+            update[level] = head;
+            updateRank[level] = 0;
+        }
+        int changes = 0;
+        T lastPayload = null;
+        for (Object o : payloads) {
+            T payload = (T)o;
+            //A repeat in c would toggle the item back, so only the first of each is used
+            if (lastPayload != null && compare(lastPayload, payload) == 0)
+                continue;
+            lastPayload = payload;
+            SkipListSetItem<T> previousItem = findPredecessorsFrom(payload, update, updateRank, currentHeight);
+            SkipListSetItem<T> nextItem = previousItem.getNext(0);
+            if (nextItem != tail && compare(nextItem.getPayload(), payload) == 0)
+                unlink(nextItem, update);
+            else
+                insert(payload, previousItem, update, updateRank);
+            changes++;
+        }
+        afterMutations(changes);
+        return changes > 0;
+    }
+
+    //Returns a new set holding the items that are in this set, the other set, or both. If the other set is in the
+    //same order, both are walked once side by side and the result is built by appending
+    public SkipListSet<T> union(SortedSet<? extends T> other) {
+        if (!isSameOrder(other)) {
+            SkipListSet<T> result = new SkipListSet<T>(comparator, levelGenerator);
+            result.addAll(this);
+            result.addAll(other);
+            return result;
+        }
+        return merge(other, true);
+    }
+
+    //Returns a new set holding the items that are in both this set and the other set. Whichever side is behind
+    //jumps forward to the other side's next item on the upper levels, so long runs that only one side has are
+    //skipped in about O(log run) rather than walked
+    @SuppressWarnings("unchecked")
+    public SkipListSet<T> intersection(SortedSet<? extends T> other) {
+        SkipListSet<T> result = new SkipListSet<T>(comparator, levelGenerator);
+        if (!isSameOrder(other)) {
+            for (SkipListSetItem<T> currentItem = head.getNext(0); currentItem != tail; currentItem = currentItem.getNext(0))
+                if (other.contains(currentItem.getPayload()))
+                    result.add(currentItem.getPayload());
+            return result;
+        }
+        if (other instanceof SkipListSet) {
+            SkipListSet<T> otherList = (SkipListSet<T>) other;
+            SkipListSetItem<T> currentItem = head.getNext(0);
+            SkipListSetItem<T> otherItem = otherList.head.getNext(0);
+            while (currentItem != tail && otherItem != otherList.tail) {
+                int comparison = compare(currentItem.getPayload(), otherItem.getPayload());
+                if (comparison == 0) {
+                    result.add(currentItem.getPayload());
+                    currentItem = currentItem.getNext(0);
+                    otherItem = otherItem.getNext(0);
+                }
+                else if (comparison < 0)
+                    currentItem = seekFrom(currentItem, otherItem.getPayload());
+                else
+                    otherItem = otherList.seekFrom(otherItem, currentItem.getPayload());
+            }
+            return result;
+        }
+        //Otherwise walk the other set and jump forward through this one
+        SortedMembership<T> membership = new SortedMembership<T>(this);
+        for (T payload : other)
+            if (membership.test(payload))
+                result.add(payload);
+        return result;
+    }
+
+    //Returns a new set holding the items in this set that aren't in the other set. If the other set is in the same
+    //order it is walked alongside this one (jumping forward on its upper levels if it is a SkipListSet)
+    @SuppressWarnings("unchecked")
+    public SkipListSet<T> difference(SortedSet<? extends T> other) {
+        SkipListSet<T> result = new SkipListSet<T>(comparator, levelGenerator);
+        Predicate<T> inOther;
+        if (isSameOrder(other))
+            inOther = new SortedMembership<T>((SortedSet<T>) other);
+        else
+            inOther = payload -> other.contains(payload);
+        for (SkipListSetItem<T> currentItem = head.getNext(0); currentItem != tail; currentItem = currentItem.getNext(0))
+            if (!inOther.test(currentItem.getPayload()))
+                result.add(currentItem.getPayload());
+        return result;
+    }
+
+    //Returns a new set holding the items that are in exactly one of this set and the other set
+    public SkipListSet<T> symmetricDifference(SortedSet<? extends T> other) {
+        if (!isSameOrder(other)) {
+            SkipListSet<T> result = new SkipListSet<T>(comparator, levelGenerator);
+            result.addAll(this);
+            result.toggleAll(other);
+            return result;
+        }
+        return merge(other, false);
+    }
+
+    @Override
+    public void clear() {
+        //Since the Java garbage collection system handles deletion, all we have to do to clear a list is to
+        //point every level of the head back at the tail
+        if (snapshotsOpen())
+            versionLink(head);
+        for (int level = 0; level < MAX_LEVEL; level++) {
+            head.setNext(level, tail);
+            head.setSpan(level, 1);
+        }
+        tail.setPrevious(head);
+
+        numItems = 0;
+        modCount++;
+        maxHeight = 2;  //Starting height is 2 for an empty list
+        currentHeight = 0;
+        heightChanges = 1;
+        Arrays.fill(levelCounts, 0);
+        repairing = false;
+        repairPayload = null;
+        if (metrics != null) {
+            metrics.recordCleared();
+            metrics.recordHeights(currentHeight, maxHeight, heightChanges);
+        }
+    }
+
+    @Override
+    public Comparator<? super T> comparator() {
+        //null means natural ordering
+        return comparator;
+    }
+
+    //Returns a view of the items from fromElement up to (but not including) toElement
+    @Override
+    public SortedSet<T> subSet(T fromElement, T toElement) {
+        return subSet(fromElement, true, toElement, false);
+    }
+
+    //Returns a view of the items before toElement
+    @Override
+    public SortedSet<T> headSet(T toElement) {
+        return headSet(toElement, false);
+    }
+
+    //Returns a view of the items from fromElement onwards
+    @Override
+    public SortedSet<T> tailSet(T fromElement) {
+        return tailSet(fromElement, true);
+    }
+
+    //Returns a view of the items between fromElement and toElement
+    @Override
+    public NavigableSet<T> subSet(T fromElement, boolean fromInclusive, T toElement, boolean toInclusive) {
+        if (compare(fromElement, toElement) > 0)
+            throw new IllegalArgumentException("Error: fromElement is greater than toElement!");
+        return new SkipListSubSet(fromElement, fromInclusive, toElement, toInclusive, false);
+    }
+
+    //Returns a view of the items before (or up to, if inclusive) toElement
+    @Override
+    public NavigableSet<T> headSet(T toElement, boolean inclusive) {
+        if (toElement == null)
+            throw new NullPointerException();
+        return new SkipListSubSet(null, false, toElement, inclusive, false);
+    }
+
+    //Returns a view of the items after (or from, if inclusive) fromElement
+    @Override
+    public NavigableSet<T> tailSet(T fromElement, boolean inclusive) {
+        if (fromElement == null)
+            throw new NullPointerException();
+        return new SkipListSubSet(fromElement, inclusive, null, false, false);
+    }
+
+    //Returns a view of the whole list in descending order
+    @Override
+    public NavigableSet<T> descendingSet() {
+        return new SkipListSubSet(null, false, null, false, true);
+    }
+
+    //Returns an iterator that walks the list backwards from the last item
+    @Override
+    public Iterator<T> descendingIterator() {
+        return new DescendingSkipListSetIterator(tail.getPrevious(), null);
+    }
+
+    //Returns the greatest item strictly less than e (null if there is none)
+    @Override
+    public T lower(T e) {
+        return lowerItem(e).getPayload();
+    }
+
+    //Returns the greatest item less than or equal to e (null if there is none)
+    @Override
+    public T floor(T e) {
+        return floorItem(e).getPayload();
+    }
+
+    //Returns the least item greater than or equal to e (null if there is none)
+    @Override
+    public T ceiling(T e) {
+        return ceilingItem(e).getPayload();
+    }
+
+    //Returns the least item strictly greater than e (null if there is none)
+    @Override
+    public T higher(T e) {
+        return higherItem(e).getPayload();
+    }
+
+    //Removes and returns the first item in the list (null if the list is empty)
+    @Override
+    public T pollFirst() {
+        SkipListSetItem<T> firstItem = head.getNext(0);
+        if (firstItem == tail)
+            return null;
+        //The head is the item before the first item on every level, so no search is needed
+        for (int level = 0; level <= currentHeight; level++)
+            update[level] = head;
+        unlink(firstItem, update);
+        afterMutations(1);
+        return firstItem.getPayload();
+    }
+
+    //Removes and returns the last item in the list (null if the list is empty)
+    @Override
+    public T pollLast() {
+        SkipListSetItem<T> lastItem = tail.getPrevious();
+        if (lastItem == head)
+            return null;
+        //Finding the items before it on the upper levels takes one descent
+        findPredecessors(lastItem.getPayload());
+        unlink(lastItem, update);
+        afterMutations(1);
+        return lastItem.getPayload();
+    }
+
+    //Returns the item at the given index in sorted order (0 is the first item)
+    public T get(int index) {
+        if (index < 0 || index >= numItems)
+            throw new IndexOutOfBoundsException("Error: Index " + index + " out of bounds for size " + numItems + "!");
+        return itemAt(index + 1).getPayload();
+    }
+
+    //Returns the index of the payload in sorted order, or -1 if it isn't in the list
+    @SuppressWarnings("unchecked")
+    public int indexOf(Object o) {
+        //Type cast
+        T payload = (T)o;
+        //Count the items before it, then check whether the next one is it
+        SkipListSetItem<T> previousItem = findPredecessors(payload);
+        SkipListSetItem<T> nextItem = previousItem.getNext(0);
+        if (nextItem != tail && compare(payload, nextItem.getPayload()) == 0)
+            return updateRank[0];
+        return -1;
+    }
+
+    //Returns the number of items strictly less than e (which is its index, if it's in the list)
+    public int rank(T e) {
+        return countBelow(e, false);
+    }
+
+    //Returns a list of the items from index fromIndex up to (but not including) toIndex, in sorted order. Finding the
+    //first one takes one descent, so this costs O(log n + k) for k items. The list is a copy
+    public List<T> subList(int fromIndex, int toIndex) {
+        if (fromIndex < 0 || toIndex > numItems || fromIndex > toIndex)
+            throw new IndexOutOfBoundsException("Error: Range [" + fromIndex + ", " + toIndex + ") out of bounds for size " + numItems + "!");
+        List<T> list = new ArrayList<T>(toIndex - fromIndex);
+        SkipListSetItem<T> currentItem = itemAt(fromIndex + 1);
+        for (int i = fromIndex; i < toIndex; i++) {
+            list.add(currentItem.getPayload());
+            currentItem = currentItem.getNext(0);
+        }
+        return list;
+    }
+
+    //Returns the item at the given percentile (0 to 100) using the nearest-rank method (null if the list is empty)
+    public T percentile(double percent) {
+        if (percent < 0 || percent > 100 || Double.isNaN(percent))
+            throw new IllegalArgumentException("Error: Percentile must be between 0 and 100!");
+        if (numItems == 0)
+            return null;
+        int rank = (int) Math.ceil(percent / 100 * numItems);
+        return itemAt(Math.max(rank, 1)).getPayload();
+    }
+
+    //Returns a new cursor, positioned before the first item
+    public SkipListSetCursor cursor() {
+        return new SkipListSetCursor();
+    }
+
+    //Returns a read-only view of the list as it is now, which changes made to the list afterwards don't affect.
+    //It takes O(1) and copies nothing (see SkipListSetSnapshot); close it when done so old links can be dropped
+    public SkipListSetSnapshot snapshot() {
+        if (openSnapshots == null) {
+            openSnapshots = new HashSet<SnapshotReference>();
+            releasedSnapshots = new ReferenceQueue<Object>();
+            versionedItems = new ArrayList<SkipListSetItem<T>>();
+        }
+        releaseCollectedSnapshots();
+        //Changes from here on are stamped with a newer version than the snapshot's
+        SkipListSetSnapshot snapshot = new SkipListSetSnapshot(version, numItems);
+        newestSnapshot = version;
+        version++;
+        openSnapshots.add(snapshot.reference);
+        return snapshot;
+    }
+
+    //Returns first item in list
+    @Override
+    public T first() {
+        //The first item is the one after the head on the bottom level (null if the list is empty)
+        return head.getNext(0).getPayload();
+    }
+
+    @Override
+    public T last() {
+        //The last item is the one before the tail (null if the list is empty, since that's the head)
+        return tail.getPrevious().getPayload();
+    }
+
+    //Starts keeping search and shape counters (see SkipListSetMetrics) and returns them. If they are already being
+    //kept, returns the existing ones
+    public SkipListSetMetrics enableMetrics() {
+        if (metrics == null) {
+            SkipListSetMetrics newMetrics = new SkipListSetMetrics(MAX_LEVEL);
+            //Count the items already in the list
+            for (SkipListSetItem<T> currentItem = head.getNext(0); currentItem != tail; currentItem = currentItem.getNext(0))
+                newMetrics.recordLinked(currentItem.getLevels());
+            newMetrics.recordHeights(currentHeight, maxHeight, heightChanges);
+            newMetrics.reset();
+            metrics = newMetrics;
+        }
+        return metrics;
+    }
+
+    //Stops keeping counters. Metrics returned earlier keep their last values
+    public void disableMetrics() {
+        metrics = null;
+    }
+
+    //Returns the counters being kept, or null if enableMetrics() hasn't been called
+    public SkipListSetMetrics getMetrics() {
+        return metrics;
+    }
+
+    //Method to calculate what the additional height of each item should be during insertion
+    public int calculateHeight() {
+        //The generator draws all the levels from one random number, capped at the max height of the list
+        return levelGenerator.nextLevel(Math.min(maxHeight, MAX_LEVEL) - 1);
+    }
+
+    //Writes the items to the channel in a compact binary format that readFrom() loads. Only the payloads are
+    //written, in the list's order, using the codec (which can store each one as a difference from the one before).
+    //They go out in blocks of about 64KB, so the whole set is never copied at once
+    public void writeTo(WritableByteChannel channel, KeyCodec<? super T> codec) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(BLOCK_SIZE);
+        buffer.putInt(FORMAT_MAGIC).putInt(FORMAT_VERSION).putLong(numItems);
+        buffer.flip();
+        writeFully(channel, buffer);
+
+        //Each block is its length followed by whole records, so a record never has to be read in two pieces
+        buffer.clear();
+        buffer.position(Integer.BYTES);
+        T previousPayload = null;
+        for (SkipListSetItem<T> currentItem = head.getNext(0); currentItem != tail; currentItem = currentItem.getNext(0)) {
+            T payload = currentItem.getPayload();
+            int maxSize = codec.maxSize(payload);
+            if (buffer.remaining() < maxSize) {
+                //An empty block is never written, since readFrom() takes a length of 0 to be corrupt
+                if (buffer.position() > Integer.BYTES)
+                    writeBlock(channel, buffer);
+                //A record too big for a block grows the buffer to fit it
+                if (buffer.capacity() - Integer.BYTES < maxSize)
+                    buffer = ByteBuffer.allocate(maxSize + Integer.BYTES);
+                buffer.position(Integer.BYTES);
+            }
+            codec.encode(payload, previousPayload, buffer);
+            previousPayload = payload;
+        }
+        if (buffer.position() > Integer.BYTES)
+            writeBlock(channel, buffer);
+    }
+
+    //Builds a new set in natural order from the channel, reading the format written by writeTo() with the same
+    //codec
+    public static <T extends Comparable<T>> SkipListSet<T> readFrom(ReadableByteChannel channel, KeyCodec<T> codec) throws IOException {
+        return readFrom(channel, codec, null);
+    }
+
+    //Builds a new set ordered by the comparator (null for natural ordering) from the channel, reading the format
+    //written by writeTo() with the same codec from a set in the same order. The items are already in order, so they
+    //are appended as they are read, without searching
+    public static <T> SkipListSet<T> readFrom(ReadableByteChannel channel, KeyCodec<T> codec, Comparator<? super T> comparator) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(BLOCK_SIZE);
+        buffer.limit(FORMAT_HEADER_SIZE);
+        readFully(channel, buffer);
+        buffer.flip();
+        if (buffer.getInt() != FORMAT_MAGIC)
+            throw new IOException("Error: Not a skip list set!");
+        if (buffer.getInt() != FORMAT_VERSION)
+            throw new IOException("Error: Unsupported format version!");
+        long size = buffer.getLong();
+        if (size < 0 || size > Integer.MAX_VALUE)
+            throw new IOException("Error: Bad size " + size + "!");
+
+        SkipListSet<T> set = new SkipListSet<T>(comparator);
+        set.startBuild();
+        T previousPayload = null;
+        while (set.size() < size) {
+            //Read a whole block, then decode the records in it
+            buffer.clear();
+            buffer.limit(Integer.BYTES);
+            readFully(channel, buffer);
+            int blockSize = buffer.getInt(0);
+            if (blockSize <= 0)
+                throw new IOException("Error: Bad block size " + blockSize + "!");
+            if (blockSize > buffer.capacity())
+                buffer = ByteBuffer.allocate(blockSize);
+            buffer.clear();
+            buffer.limit(blockSize);
+            readFully(channel, buffer);
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                T payload;
+                try {
+                    payload = codec.decode(buffer, previousPayload);
+                }
+                catch (RuntimeException e) {
+                    throw new IOException("Error: Could not decode an item!", e);
+                }
+                if (set.size() == size || !set.canAppend(payload))
+                    throw new IOException("Error: Items are not in the set's order or there are too many of them!");
+                set.append(payload);
+                previousPayload = payload;
+            }
+        }
+        set.finishBuild();
+        return set;
+    }
+
+    //Rebalance method to rebalance the height of all list items
+    public void reBalance() {
+        long startTime = metrics != null ? System.nanoTime() : 0;
+        if (metrics != null)
+            metrics.recordCleared();
+
+        //Set the current height to 0
+        currentHeight = 0;
+        modCount++;
+        Arrays.fill(levelCounts, 0);
+        //Every item gets a new height here, so a repair under way has nothing left to do
+        repairing = false;
+        repairPayload = null;
+
+        //The last item seen on each level and its position, starting with the head
+        for (int level = 0; level < MAX_LEVEL; level++) {
+            update[level] = head;
+            updateRank[level] = 0;
+        }
+
+        //The bottom level is a sorted list that we can iterate over, so for each item in the list
+        int rank = 0;
+        for (SkipListSetItem<T> currentItem = head.getNext(0); currentItem != tail; currentItem = currentItem.getNext(0)) {
+            rank++;
+            //Assign a random height to it, resizing its links only if the height changed
+            int height = calculateHeight();
+            if (currentItem.getLevels() != height + 1)
+                currentItem.setLevels(height + 1);
+            if (metrics != null)
+                metrics.recordLinked(height + 1);
+            levelCounts[0]++;
+            //Link it after the last item seen on each of its upper levels
+            for (int level = 1; level <= height; level++) {
+                update[level].setNext(level, currentItem);
+                update[level].setSpan(level, rank - updateRank[level]);
+                update[level] = currentItem;
+                updateRank[level] = rank;
+                levelCounts[level]++;
+            }
+            //Keep track of the tallest item
+            if (height > currentHeight)
+                currentHeight = height;
+        }
+
+        //Close off every upper level at the tail
+        for (int level = 1; level < MAX_LEVEL; level++) {
+            update[level].setNext(level, tail);
+            update[level].setSpan(level, numItems + 1 - updateRank[level]);
+            update[level] = null;
+        }
+        update[0] = null;
+
+        if (metrics != null) {
+            metrics.recordHeights(currentHeight, maxHeight, heightChanges);
+            metrics.recordReBalance(System.nanoTime() - startTime);
+        }
+    }
+
+    //Re-draws the heights of up to maxSteps items if the list is being repaired, returning true if the repair still
+    //has more to do. Mutations already repair a few items each; call this from a maintenance task (holding whatever
+    //lock guards the list) to finish sooner. Unlike reBalance(), the list is never rebuilt all at once
+    public boolean repair(int maxSteps) {
+        for (int step = 0; step < maxSteps && repairing; step++)
+            repairNext();
+        return repairing;
+    }
+
+    //Returns true if the number of items on each level is about what the level generator should give
+    public boolean isBalanced() {
+        double probability = levelGenerator.probability();
+        double expected = numItems;
+        for (int level = 1; level < Math.min(maxHeight, MAX_LEVEL); level++) {
+            expected *= probability;
+            if (expected < HEALTH_CHECK_MIN_ITEMS)
+                break;
+            //A quarter off is at least 4 standard deviations at the smallest level checked, so chance alone
+            //almost never starts a repair
+            if (levelCounts[level] < expected * 0.75 || levelCounts[level] > expected * 1.25)
+                return false;
+        }
+        return true;
+    }
+
+    //Removes every item less than watermark in one cut: a single descent finds the last of them on each level, and
+    //the head is linked straight past them, so it takes O(log n + k) for k items instead of k separate removals.
+    //Returns the number of items removed
+    public int evictBefore(T watermark) {
+        findPredecessors(watermark);
+        int evicted = cutPrefix();
+        afterMutations(evicted);
+        return evicted;
+    }
+
+    //Removes the items whose timestamp is too old (see setTimeToLive) in one cut, returning how many there were.
+    //Mutations already do this; call it from a maintenance task to evict items while the list isn't being changed
+    public int evictExpired() {
+        int evicted = cutExpired();
+        afterMutations(evicted);
+        return evicted;
+    }
+
+    //Keeps at most capacity items: whenever there are more, the lowest ones are cut off (as in evictBefore). Use
+    //Integer.MAX_VALUE for no limit
+    public void setCapacity(int capacity) {
+        if (capacity < 0)
+            throw new IllegalArgumentException("Error: Capacity can't be negative!");
+        this.capacity = capacity;
+        afterMutations(0);
+    }
+
+    //Evicts items once timeToLive has passed since their timestamp, as told by the clock (in the same units). The
+    //list must be ordered by timestamp, oldest first, so the expired items are always a run at the front. Use a
+    //null timestamp function to turn this off
+    public void setTimeToLive(ToLongFunction<? super T> timestamp, long timeToLive, LongSupplier clock) {
+        if (timestamp != null && (timeToLive < 0 || clock == null))
+            throw new IllegalArgumentException("Error: Time to live needs a clock and can't be negative!");
+        this.timestamp = timestamp;
+        this.timeToLive = timeToLive;
+        this.clock = clock;
+        afterMutations(0);
+    }
+
+    //Same as above, with timestamps and timeToLive in milliseconds of System.currentTimeMillis()
+    public void setTimeToLive(ToLongFunction<? super T> timestamp, long timeToLive) {
+        setTimeToLive(timestamp, timeToLive, System::currentTimeMillis);
+    }
+
+    //Sets the listener that is given every evicted item, in ascending order (null for none). Items removed with
+    //remove(), clear() and so on aren't evictions
+    public void setEvictionListener(Consumer<? super T> evictionListener) {
+        this.evictionListener = evictionListener;
+    }
+
+    //Item-level methods used by SkipListMap and SkipListMultiset, which keep their values and counts in the items.
+    //Items returned are never the head or the tail: null means there is no such item
+
+    //Makes a new item. SkipListMap and SkipListMultiset override this to make items that also hold a value or count
+    SkipListSetItem<T> newItem(T payload, int levels) {
+        return new SkipListSetItem<T>(payload, levels);
+    }
+
+    //Returns the item holding payload, or null if it isn't in the list
+    SkipListSetItem<T> findItem(T payload) {
+        SkipListSetItem<T> foundItem = traverse(payload);
+        return foundItem != head && compare(payload, foundItem.getPayload()) == 0 ? foundItem : null;
+    }
+
+    //Returns the item holding payload, adding it first if it isn't in the list. Returns null if the new item was
+    //evicted as soon as it was added, which only a set with a capacity or a time to live does
+    SkipListSetItem<T> addItem(T e) {
+        SkipListSetItem<T> newItem;
+        //If the item goes after the last item, continue from where the last append left off
+        SkipListSetItem<T> lastItem = tail.getPrevious();
+        if (lastItem != head && compare(lastItem.getPayload(), e) < 0)
+            newItem = appendCursor.insertItemNear(e);
+        else {
+            //Find the items that go before the item we want to insert on every level. If it's already in the skip
+            //list we're done, otherwise we can insert it right there
+            SkipListSetItem<T> foundItem = findPath(e);
+            if (foundItem != null)
+                return foundItem;
+            newItem = insertAtPath(e);
+        }
+        //Evictions cut items off the front of the list, so the new item went with them if the list now starts
+        //after it
+        if (capacity != Integer.MAX_VALUE || timestamp != null) {
+            SkipListSetItem<T> firstItem = head.getNext(0);
+            if (firstItem == tail || compare(firstItem.getPayload(), e) > 0)
+                return null;
+        }
+        return newItem;
+    }
+
+    //Removes the item holding payload and returns it, or returns null if it isn't in the list
+    SkipListSetItem<T> removeItem(T payload) {
+        //find the items before the item we wish to delete on every level
+        SkipListSetItem<T> currentItem = findPath(payload);
+        if (currentItem != null)
+            removeAtPath(currentItem);
+        return currentItem;
+    }
+
+    //Searches for payload, leaving the items before it on every level in update, and returns the item holding it
+    //(null if there is none). insertAtPath() and removeAtPath() can then change the list without searching again,
+    //as long as nothing else changes it first
+    SkipListSetItem<T> findPath(T payload) {
+        SkipListSetItem<T> nextItem = findPredecessors(payload).getNext(0);
+        return nextItem != tail && compare(payload, nextItem.getPayload()) == 0 ? nextItem : null;
+    }
+
+    //Inserts payload where the last findPath() stopped, returning its new item
+    SkipListSetItem<T> insertAtPath(T payload) {
+        SkipListSetItem<T> newItem = insert(payload, update[0], update, updateRank);
+        afterMutations(1);
+        return newItem;
+    }
+
+    //Removes the item found by the last findPath()
+    void removeAtPath(SkipListSetItem<T> item) {
+        unlink(item, update);
+        afterMutations(1);
+    }
+
+    //Returns a copy of the path the last findPath() left in update, to insert or remove at later on
+    SavedPath savePath() {
+        return new SavedPath();
+    }
+
+    //A search path copied out of update, so searches made in between (which write over update) don't lose it.
+    //It stays valid as long as no item is added or removed, which the caller checks with getModCount()
+    class SavedPath {
+        //The items before the payload on each level in use, and their positions
+        private final SkipListSetItem<T>[] path;
+        private final int[] pathRank;
+
+        //Constructor, copying the levels in use
+        SavedPath() {
+            path = Arrays.copyOf(update, currentHeight + 1);
+            pathRank = Arrays.copyOf(updateRank, currentHeight + 1);
+        }
+
+        //Puts the path back in update
+        private void restore() {
+            System.arraycopy(path, 0, update, 0, path.length);
+            System.arraycopy(pathRank, 0, updateRank, 0, pathRank.length);
+        }
+
+        //Inserts payload at the path, returning its new item
+        SkipListSetItem<T> insert(T payload) {
+            restore();
+            return insertAtPath(payload);
+        }
+
+        //Removes the item the path was found for
+        void remove(SkipListSetItem<T> item) {
+            restore();
+            removeAtPath(item);
+        }
+    }
+
+    //Returns the first, last, next or previous item on the bottom level
+    SkipListSetItem<T> firstItem() {
+        return itemOrNull(head.getNext(0));
+    }
+    SkipListSetItem<T> lastItem() {
+        return itemOrNull(tail.getPrevious());
+    }
+    SkipListSetItem<T> nextItem(SkipListSetItem<T> item) {
+        return itemOrNull(item.getNext(0));
+    }
+    SkipListSetItem<T> previousItem(SkipListSetItem<T> item) {
+        return itemOrNull(item.getPrevious());
+    }
+
+    //Returns the nearest item above (or below) payload, including the item holding payload if inclusive
+    SkipListSetItem<T> nearItem(T payload, boolean above, boolean inclusive) {
+        if (above)
+            return itemOrNull(inclusive ? ceilingItem(payload) : higherItem(payload));
+        return itemOrNull(inclusive ? floorItem(payload) : lowerItem(payload));
+    }
+
+    //Counts the items between two bounds (null for no bound) as the difference between their positions
+    int countRange(T fromElement, boolean fromInclusive, T toElement, boolean toInclusive) {
+        int below = fromElement == null ? 0 : countBelow(fromElement, !fromInclusive);
+        int upTo = toElement == null ? numItems : countBelow(toElement, toInclusive);
+        return Math.max(upTo - below, 0);
+    }
+
+    //Removes the items between two bounds (null for no bound), returning how many there were. The bounds are
+    //turned into positions as in countRange, then a third descent finds the path in front of the range and the
+    //items are cut out in one walk over them, so removing k items costs O(log n + k) instead of k removals
+    int removeRange(T fromElement, boolean fromInclusive, T toElement, boolean toInclusive) {
+        int below = fromElement == null ? 0 : countBelow(fromElement, !fromInclusive);
+        int upTo = toElement == null ? numItems : countBelow(toElement, toInclusive);
+        if (upTo <= below)
+            return 0;
+        findPredecessorsAt(below);
+        cutRange(upTo - below);
+        afterMutations(upTo - below);
+        return upTo - below;
+    }
+
+    //Returns the item holding each payload (null where there is none), found in one sweep as in containsEach
+    SkipListSetItem<T>[] findEach(T[] payloads) {
+        SkipListSetItem<T>[] foundItems = newItemArray(payloads.length);
+        //Visit the payloads in ascending order, sorting their positions only if they're out of order
+        int[] order = null;
+        for (int i = 1; i < payloads.length && order == null; i++) {
+            if (compare(payloads[i - 1], payloads[i]) > 0) {
+                order = new int[payloads.length];
+                for (int j = 0; j < order.length; j++)
+                    order[j] = j;
+                sortPositions(payloads, order, new int[order.length], 0, order.length);
+            }
+        }
+        //The cursor's path is left just before the last payload, so each search climbs from there only as far as
+        //the gap to the next payload needs
+        SkipListSetCursor cursor = new SkipListSetCursor();
+        for (int i = 0; i < payloads.length; i++) {
+            int index = order == null ? i : order[i];
+            SkipListSetItem<T> nextItem = cursor.moveTo(payloads[index]).getNext(0);
+            if (nextItem == tail)
+                break;
+            if (compare(nextItem.getPayload(), payloads[index]) == 0)
+                foundItems[index] = nextItem;
+        }
+        return foundItems;
+    }
+
+    //Merge sorts order[from, to) by the payloads at those positions. Sorting plain ints keeps the batch from
+    //boxing a position for every payload, which cost more than the sweep it sets up
+    private void sortPositions(T[] payloads, int[] order, int[] buffer, int from, int to) {
+        if (to - from < 8) {
+            for (int i = from + 1; i < to; i++) {
+                int position = order[i];
+                int j = i;
+                for (; j > from && compare(payloads[order[j - 1]], payloads[position]) > 0; j--)
+                    order[j] = order[j - 1];
+                order[j] = position;
+            }
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        sortPositions(payloads, order, buffer, from, middle);
+        sortPositions(payloads, order, buffer, middle, to);
+        //Halves already in order don't need merging
+        if (compare(payloads[order[middle - 1]], payloads[order[middle]]) <= 0)
+            return;
+        System.arraycopy(order, from, buffer, from, to - from);
+        int left = from, right = middle;
+        for (int i = from; i < to; i++) {
+            if (right == to || (left < middle && compare(payloads[buffer[left]], payloads[buffer[right]]) <= 0))
+                order[i] = buffer[left++];
+            else
+                order[i] = buffer[right++];
+        }
+    }
+
+    //Returns the number of times the list has been changed, so callers can tell whether it changed under them
+    int getModCount() {
+        return modCount;
+    }
+
+    //Returns null in place of the head or the tail
+    private SkipListSetItem<T> itemOrNull(SkipListSetItem<T> item) {
+        return item == head || item == tail ? null : item;
+    }
+
+    //Makes an array of item links. Java can't make an array of a generic type, so every one is made here with the
+    //one cast that needs
+    @SuppressWarnings("unchecked")
+    static <T> SkipListSetItem<T>[] newItemArray(int length) {
+        return (SkipListSetItem<T>[]) new SkipListSetItem<?>[length];
+    }
+
+    //Compares two payloads in the list's order
+    int compare(T a, T b) {
+        return compare(comparator, a, b);
+    }
+
+    //Compares two payloads with the comparator, or in natural order if it's null
+    @SuppressWarnings("unchecked")
+    static <T> int compare(Comparator<? super T> comparator, T a, T b) {
+        return comparator == null ? ((Comparable<? super T>) a).compareTo(b) : comparator.compare(a, b);
+    }
+
+    //Traverses the skip list up until the item we want (for contains) or the item before the item we want (insert)
+    @SuppressWarnings("unchecked")
+    private SkipListSetItem<T> traverse(T payload) {
+        if (comparator != null)
+            return traverse(payload, comparator);
+        //In natural order the payload itself does the comparing (item <= payload is payload >= item)
+        Comparable<? super T> key = (Comparable<? super T>) payload;
+        //Start at the head of the linked list, on the highest level in use
+        SkipListSetItem<T> currentItem = head;
+        int steps = 0;
+        int stops = 0;
+
+        for (int level = currentHeight; level >= 0; level--) {
+            //While the next item in the row is less than or equal to payload, and we are not at the end of the row
+            SkipListSetItem<T> nextItem = currentItem.getNext(level);
+            while (nextItem != tail && key.compareTo(nextItem.getPayload()) >= 0) {
+                //Get the next item
+                currentItem = nextItem;
+                nextItem = currentItem.getNext(level);
+                steps++;
+            }
+            if (nextItem != tail)
+                stops++;
+        }
+        recordSearch(steps, stops);
+        //Return the item
+        return currentItem;
+    }
+
+    //Same as traverse(payload), for a list ordered by a comparator
+    private SkipListSetItem<T> traverse(T payload, Comparator<? super T> comparator) {
+        SkipListSetItem<T> currentItem = head;
+        int steps = 0;
+        int stops = 0;
+
+        for (int level = currentHeight; level >= 0; level--) {
+            SkipListSetItem<T> nextItem = currentItem.getNext(level);
+            while (nextItem != tail && comparator.compare(nextItem.getPayload(), payload) <= 0) {
+                //Get the next item
+                currentItem = nextItem;
+                nextItem = currentItem.getNext(level);
+                steps++;
+            }
+            if (nextItem != tail)
+                stops++;
+        }
+        recordSearch(steps, stops);
+        //Return the item
+        return currentItem;
+    }
+
+    //Inserts a new item holding payload right after previousItem, given the items before it on every level in
+    //path (and their positions in pathRank). Afterwards path is the search path of the new item, which is returned
+    private SkipListSetItem<T> insert(T e, SkipListSetItem<T> previousItem, SkipListSetItem<T>[] path, int[] pathRank) {
+        SkipListSetItem<T> nextItem = previousItem.getNext(0);
+        //Randomly generate the number of additional levels this item has
+        int height = calculateHeight();
+        //If the item is taller than the list, the levels above the current height start at the head
+        //(whose link on a new level goes straight to the tail)
+        while (currentHeight < height) {
+            currentHeight++;
+            path[currentHeight] = head;
+            pathRank[currentHeight] = 0;
+            head.setSpan(currentHeight, numItems + 1);
+        }
+        //Create the new item
+        SkipListSetItem<T> newItem = newItem(e, height + 1);
+        int newRank = pathRank[0] + 1;
+        if (snapshotsOpen()) {
+            newItem.setVersion(version);
+            versionLink(path[0]);
+        }
+        //We insert it as we would in a linked list, once on each of its levels, splitting the span of the link it
+        //goes into between the item before it and itself
+        for (int level = 0; level <= height; level++) {
+            int distance = newRank - pathRank[level];
+            newItem.setNext(level, path[level].getNext(level));
+            newItem.setSpan(level, path[level].getSpan(level) - distance + 1);
+            path[level].setNext(level, newItem);
+            path[level].setSpan(level, distance);
+            levelCounts[level]++;
+        }
+        //Links on the levels above it now pass over one more item
+        for (int level = height + 1; level <= currentHeight; level++)
+            path[level].setSpan(level, path[level].getSpan(level) + 1);
+        //Only the bottom level is doubly linked
+        newItem.setPrevious(previousItem);
+        nextItem.setPrevious(newItem);
+
+        //increment the number of items in the list
+        numItems++;
+        modCount++;
+
+        //If we need to increase the maximum height, do so
+        if (numItems/heightChanges >= maxHeight) {
+            maxHeight *= 2;
+            heightChanges *= 2;
         }
-    
-        //Returns the payload of the current iteration
-        @Override
-        public T next() {
-            T payload = currentItem.getPayload();
-            currentItem = currentItem.getNext();
-            return payload;
+        if (metrics != null) {
+            metrics.recordLinked(height + 1);
+            metrics.recordHeights(currentHeight, maxHeight, heightChanges);
         }
 
-        //Remove throws exception
-        @Override
-        public void remove() {
-            throw new UnsupportedOperationException("Error: Method remove() not supported!", null);
+        //The new item is now the last item before anything greater on each of its levels
+        for (int level = 0; level <= height; level++) {
+            path[level] = newItem;
+            pathRank[level] = newRank;
         }
+        return newItem;
     }
 
-    //Item wrapper class
-    class SkipListSetItem<T extends Comparable<T>> {
-        //Payload
-        private T payload;
-
-        //Links
-        private SkipListSetItem<T> next;
-        private SkipListSetItem<T> previous;
-        private SkipListSetItem<T> above;
-        private SkipListSetItem<T> below;
+    //Unlinks an item from every level it's on, given the items before it in path
+    private void unlink(SkipListSetItem<T> currentItem, SkipListSetItem<T>[] path) {
+        //Delete the item as we would in a linked list, once on each of its levels, merging its spans into the
+        //links before it. The item keeps its own links, so snapshots that can still see it can walk past it
+        if (snapshotsOpen())
+            versionLink(path[0]);
+        for (int level = 0; level < currentItem.getLevels(); level++) {
+            path[level].setNext(level, currentItem.getNext(level));
+            path[level].setSpan(level, path[level].getSpan(level) + currentItem.getSpan(level) - 1);
+            levelCounts[level]--;
+        }
+        //Links on the levels above it now pass over one less item
+        for (int level = currentItem.getLevels(); level <= currentHeight; level++)
+            path[level].setSpan(level, path[level].getSpan(level) - 1);
+        currentItem.getNext(0).setPrevious(currentItem.getPrevious());
 
-        //Getters
-        public T getPayload() { return payload; }
-        public SkipListSetItem<T> getNext() { return next; }
-        public SkipListSetItem<T> getPrevious() { return previous; }
-        public SkipListSetItem<T> getAbove() { return above; }
-        public SkipListSetItem<T> getBelow() { return below; }
+        //Decrement the number of items in the list
+        numItems--;
+        modCount++;
 
-        //Setters
-        public void setPayload(T payload) { this.payload = payload; }
-        public void setBelow(SkipListSetItem<T> below) { this.below = below; }
-        public void setAbove(SkipListSetItem<T> above) { this.above = above; }
-        public void setPrevious(SkipListSetItem<T> previous) { this.previous = previous; }
-        public void setNext(SkipListSetItem<T> next) { this.next = next; }
+        //If we need to decrease the maximum height, do so (never below the starting height). The list has to shrink
+        //to a quarter of the size that last doubled it first, so adding and removing around that size doesn't
+        //keep doubling and halving it
+        if (heightChanges > 1 && numItems/heightChanges < maxHeight/8) {
+            maxHeight /= 2;
+            heightChanges /= 2;
+        }
 
-        //Constructor
-        public SkipListSetItem(T payload) {
-            this.payload = payload;
-            this.next = null;
-            this.previous = null;
-            this.above = null;
-            this.below = null;
+        //If there are empty levels at the top of our skip list (meaning that the item
+        //we deleted was the tallest one in the list), we stop searching them
+        while (currentHeight > 0 && head.getNext(currentHeight) == tail)
+            currentHeight--;
+        if (metrics != null) {
+            metrics.recordUnlinked(currentItem.getLevels());
+            metrics.recordHeights(currentHeight, maxHeight, heightChanges);
         }
     }
 
-    //Head and tail pointers
-    private SkipListSetItem<T> head;
-    private SkipListSetItem<T> tail;
-
-    //Pseudo-random number generator
-    Random rand = new Random();
+    //Like findPredecessors, but continues from an existing search path whose items are all less than payload,
+    //starting at startLevel. Each level is only searched forward from where the path already is
+    private SkipListSetItem<T> findPredecessorsFrom(T payload, SkipListSetItem<T>[] path, int[] pathRank, int startLevel) {
+        SkipListSetItem<T> currentItem = head;
+        int rank = 0;
+        int steps = 0;
+        int stops = 0;
+
+        for (int level = startLevel; level >= 0; level--) {
+            //Start from whichever is further along: where we dropped down to this level, or where the last search did
+            if (pathRank[level] > rank) {
+                currentItem = path[level];
+                rank = pathRank[level];
+            }
+            //While the next item in the row is less than payload, and we are not at the end of the row
+            SkipListSetItem<T> nextItem = currentItem.getNext(level);
+            while (nextItem != tail && compare(nextItem.getPayload(), payload) < 0) {
+                rank += currentItem.getSpan(level);
+                currentItem = nextItem;
+                nextItem = currentItem.getNext(level);
+                steps++;
+            }
+            if (nextItem != tail)
+                stops++;
+            //Remember where we dropped down
+            path[level] = currentItem;
+            pathRank[level] = rank;
+        }
+        if (metrics != null)
+            metrics.recordSearch(steps, startLevel + 1, steps + stops);
+        return currentItem;
+    }
 
-    //Other data types
-    private int currentHeight; //current height of the skip list
-    private int maxHeight; //maximum height of the skip list
-    private int heightChanges; //this value changes based on how much we grow/shrink the max height
-    private int numItems; //number of items in the list
+    //Returns the item at the given position on the bottom level (1 is the first item), adding up spans on the way down
+    private SkipListSetItem<T> itemAt(int rank) {
+        SkipListSetItem<T> currentItem = head;
+        int traversed = 0;
 
+        for (int level = currentHeight; level >= 0; level--) {
+            //Move forward as long as we don't go past the position we want
+            while (currentItem.getNext(level) != tail && traversed + currentItem.getSpan(level) <= rank) {
+                traversed += currentItem.getSpan(level);
+                currentItem = currentItem.getNext(level);
+            }
+            if (traversed == rank)
+                return currentItem;
+        }
+        return currentItem;
+    }
 
-    //Constructors
+    //Counts the items strictly less than (or, if inclusive, less than or equal to) payload in one descent
+    private int countBelow(T payload, boolean inclusive) {
+        SkipListSetItem<T> currentItem = head;
+        int rank = 0;
+        int limit = inclusive ? 0 : -1;
+        int steps = 0;
+        int stops = 0;
+
+        for (int level = currentHeight; level >= 0; level--) {
+            SkipListSetItem<T> nextItem = currentItem.getNext(level);
+            while (nextItem != tail && compare(nextItem.getPayload(), payload) <= limit) {
+                rank += currentItem.getSpan(level);
+                currentItem = nextItem;
+                nextItem = currentItem.getNext(level);
+                steps++;
+            }
+            if (nextItem != tail)
+                stops++;
+        }
+        recordSearch(steps, stops);
+        return rank;
+    }
 
-    //Builds a new, empty skip list
-    public SkipListSet() {
-        head = new SkipListSetItem<T>(null);
-        tail = new SkipListSetItem<T>(null);
-        head.setNext(tail);
-        tail.setPrevious(head);
+    //Traverses the skip list up until the last item less than or equal to payload (the head if there is none)
+    private SkipListSetItem<T> floorItem(T payload) {
+        return traverse(payload);
+    }
 
-        numItems = 0;
-        maxHeight = 2;  //Starting height is 2 for an empty list
-        currentHeight = 0;
-        heightChanges = 1;
+    //Returns the first item greater than or equal to payload (the tail if there is none)
+    private SkipListSetItem<T> ceilingItem(T payload) {
+        return lowerItem(payload).getNext(0);
     }
 
-    //Builds a new skip list then adds all the items in c to it
-    public SkipListSet(Collection<T> c) {
-        this();
-        addAll(c);
+    //Returns the first item strictly greater than payload (the tail if there is none)
+    private SkipListSetItem<T> higherItem(T payload) {
+        return traverse(payload).getNext(0);
     }
 
-    //Return the number of items in the skip list
-    @Override
-    public int size() {
-        return numItems;
+    //Traverses the skip list up until the last item strictly before payload (the head if there is none)
+    private SkipListSetItem<T> lowerItem(T payload) {
+        //Start at the head of the linked list, on the highest level in use
+        SkipListSetItem<T> currentItem = head;
+        int steps = 0;
+        int stops = 0;
+
+        for (int level = currentHeight; level >= 0; level--) {
+            //While the next item in the row is less than payload, and we are not at the end of the row
+            SkipListSetItem<T> nextItem = currentItem.getNext(level);
+            while (nextItem != tail && compare(nextItem.getPayload(), payload) < 0) {
+                //Get the next item
+                currentItem = nextItem;
+                nextItem = currentItem.getNext(level);
+                steps++;
+            }
+            if (nextItem != tail)
+                stops++;
+        }
+        recordSearch(steps, stops);
+        //Return the item
+        return currentItem;
     }
 
-    //Return true if the list is empty, false otherwise
-    @Override
-    public boolean isEmpty() {
-        return (numItems == 0);
+    //Traverses the skip list, recording in update the last item strictly before payload on each level in use
+    //(and in updateRank its position). Returns that item on the bottom level (for insert/delete)
+    @SuppressWarnings("unchecked")
+    private SkipListSetItem<T> findPredecessors(T payload) {
+        if (comparator != null)
+            return findPredecessors(payload, comparator);
+        //In natural order the payload itself does the comparing (item < payload is payload > item)
+        Comparable<? super T> key = (Comparable<? super T>) payload;
+        //Start at the head of the linked list, on the highest level in use
+        SkipListSetItem<T> currentItem = head;
+        int rank = 0;
+        int steps = 0;
+        int stops = 0;
+
+        for (int level = currentHeight; level >= 0; level--) {
+            //While the next item in the row is less than payload, and we are not at the end of the row
+            SkipListSetItem<T> nextItem = currentItem.getNext(level);
+            while (nextItem != tail && key.compareTo(nextItem.getPayload()) > 0) {
+                //Get the next item
+                rank += currentItem.getSpan(level);
+                currentItem = nextItem;
+                nextItem = currentItem.getNext(level);
+                steps++;
+            }
+            if (nextItem != tail)
+                stops++;
+            //Remember where we dropped down
+            update[level] = currentItem;
+            updateRank[level] = rank;
+        }
+        recordSearch(steps, stops);
+        //Return the item on the bottom level
+        return currentItem;
     }
 
-    //Can suppress unchecked cast warning
-    @Override
-    public boolean contains(Object o) {
-        //Type cast
-        T payload = (T)o;
-        //find the item (or the item before it, if it's not there)
-        SkipListSetItem<T> foundItem = traverse(payload);
-        //If it's the item we're looking for, return true
-        if (foundItem != null && foundItem.getPayload() != null && payload.compareTo(foundItem.getPayload()) == 0)
-            return true;
-        //Otherwise return false
-        return false;
+    //Same as findPredecessors(payload), for a list ordered by a comparator
+    private SkipListSetItem<T> findPredecessors(T payload, Comparator<? super T> comparator) {
+        SkipListSetItem<T> currentItem = head;
+        int rank = 0;
+        int steps = 0;
+        int stops = 0;
+
+        for (int level = currentHeight; level >= 0; level--) {
+            SkipListSetItem<T> nextItem = currentItem.getNext(level);
+            while (nextItem != tail && comparator.compare(nextItem.getPayload(), payload) < 0) {
+                //Get the next item
+                rank += currentItem.getSpan(level);
+                currentItem = nextItem;
+                nextItem = currentItem.getNext(level);
+                steps++;
+            }
+            if (nextItem != tail)
+                stops++;
+            //Remember where we dropped down
+            update[level] = currentItem;
+            updateRank[level] = rank;
+        }
+        recordSearch(steps, stops);
+        //Return the item on the bottom level
+        return currentItem;
     }
 
-    //Returns a new iterator
-    @Override
-    public Iterator<T> iterator() {
-        return new SkipListSetIterator<T>();
+    //Records a descent from the top level that moved forward steps times and stopped at an item (rather than the
+    //tail) on stops levels. Each step and each stop took one comparison
+    private void recordSearch(int steps, int stops) {
+        if (metrics != null)
+            metrics.recordSearch(steps, currentHeight + 1, steps + stops);
     }
 
+    //Called after every public operation that added or removed items. Cuts off the items that are past the bounds,
+    //then moves the repair along
+    private void afterMutations(int mutations) {
+        if (numItems > capacity || timestamp != null)
+            mutations += evictOverBounds();
+        advanceRepair(mutations);
+    }
 
-    @Override
-    public Object[] toArray() {
-        //Array and integer to iterate through the array
-        Object[] array = new Object[numItems];
-        int i = 0;
+    //Moves a repair under way along, or every so often checks whether one is needed
+    private void advanceRepair(int mutations) {
+        if (repairing)
+            repair(REPAIR_STEPS * mutations);
+        else {
+            mutationsSinceCheck += mutations;
+            if (mutationsSinceCheck >= HEALTH_CHECK_INTERVAL) {
+                mutationsSinceCheck = 0;
+                if (!isBalanced()) {
+                    //Start a sweep from the first item
+                    repairing = true;
+                    repairPayload = null;
+                    repairModCount = modCount - 1;
+                }
+            }
+        }
+    }
 
-        //Start at the head
-        SkipListSetItem<T> currentItem = head;
+    //Re-draws the height of the next item in the repair sweep, moving it onto or off of upper levels as needed
+    private void repairNext() {
+        //If the list changed since the last step, find the path to where the sweep is up to again
+        if (repairModCount != modCount) {
+            Arrays.fill(repairPath, head);
+            Arrays.fill(repairPathRank, 0);
+            if (repairPayload != null)
+                findPredecessorsFrom(repairPayload, repairPath, repairPathRank, currentHeight);
+        }
+        SkipListSetItem<T> currentItem = repairPath[0].getNext(0);
+        if (currentItem == tail) {
+            repairing = false;
+            repairPayload = null;
+            return;
+        }
+        int rank = repairPathRank[0] + 1;
+        int oldLevels = currentItem.getLevels();
+        int newLevels = calculateHeight() + 1;
 
-        //Go to the bottom of the head 
-        while (currentItem.getBelow() != null)
-            currentItem = currentItem.getBelow();
+        if (newLevels != oldLevels) {
+            //If the item is taller than the list, the levels above the current height start at the head
+            while (currentHeight < newLevels - 1) {
+                currentHeight++;
+                repairPath[currentHeight] = head;
+                repairPathRank[currentHeight] = 0;
+                head.setSpan(currentHeight, numItems + 1);
+            }
+            //Take it off the levels it no longer reaches, handing its spans back to the links before it
+            for (int level = newLevels; level < oldLevels; level++) {
+                repairPath[level].setNext(level, currentItem.getNext(level));
+                repairPath[level].setSpan(level, repairPath[level].getSpan(level) + currentItem.getSpan(level));
+                levelCounts[level]--;
+            }
+            currentItem.setLevels(newLevels);
+            //Put it on the levels it now reaches, splitting the links it goes into
+            for (int level = oldLevels; level < newLevels; level++) {
+                int distance = rank - repairPathRank[level];
+                currentItem.setNext(level, repairPath[level].getNext(level));
+                currentItem.setSpan(level, repairPath[level].getSpan(level) - distance);
+                repairPath[level].setNext(level, currentItem);
+                repairPath[level].setSpan(level, distance);
+                levelCounts[level]++;
+            }
+            while (currentHeight > 0 && head.getNext(currentHeight) == tail)
+                currentHeight--;
+            modCount++;
+            if (metrics != null) {
+                metrics.recordUnlinked(oldLevels);
+                metrics.recordLinked(newLevels);
+                metrics.recordHeights(currentHeight, maxHeight, heightChanges);
+            }
+        }
 
-        //For each item in the skip list, add the payload to the array
-        while (currentItem != null) {
-            array[i] = currentItem.getPayload();
-            i++;
-            currentItem = currentItem.getNext();
+        //Move the sweep past the item
+        for (int level = 0; level < newLevels; level++) {
+            repairPath[level] = currentItem;
+            repairPathRank[level] = rank;
         }
+        SkipListSetItem<T> nextItem = currentItem.getNext(0);
+        repairPayload = nextItem == tail ? null : nextItem.getPayload();
+        repairing = nextItem != tail;
+        repairModCount = modCount;
+    }
 
-        //Return the array
-        return array;
+    //Cuts off the items that are past the capacity or the time to live, returning how many there were
+    private int evictOverBounds() {
+        int evicted = cutExpired();
+        if (numItems > capacity) {
+            findPredecessorsAt(numItems - capacity);
+            evicted += cutPrefix();
+        }
+        return evicted;
     }
 
-    //Type casts the toArray function to T[]
-    @Override
-    public <T> T[] toArray(T[] a) {
-        return (T[])toArray();
+    //Cuts off the items whose timestamp is timeToLive or more before the clock, if the first one is
+    private int cutExpired() {
+        SkipListSetItem<T> firstItem = head.getNext(0);
+        if (timestamp == null || firstItem == tail)
+            return 0;
+        long now = clock.getAsLong();
+        if (now - timestamp.applyAsLong(firstItem.getPayload()) < timeToLive)
+            return 0;
+        findPredecessorsWhile(payload -> now - timestamp.applyAsLong(payload) >= timeToLive);
+        return cutPrefix();
     }
 
-    @Override
-    public boolean add(T e) {
-        //Find the item that goes before the item we want to insert
-        SkipListSetItem<T> currentItem = traverse(e);
-        //If the item is already in the skip list, return false
-        if (currentItem != null && currentItem.getPayload() != null && currentItem.getPayload().compareTo(e) == 0)
-            return false;
-        //Otherwise, it's not in the skip list and we can insert it. Start by creating a new item
-        SkipListSetItem<T> newItem = new SkipListSetItem<T>(e);
-        //We insert it as we would in a linked list, but 2-dimensionally
-        newItem.setPrevious(currentItem);
-        newItem.setNext(currentItem.getNext());
-        currentItem.getNext().setPrevious(newItem);
-        currentItem.setNext(newItem);
-        //Randomly generate the number of additional levels this item has
-        int height = calculateHeight();
-        //if the number of additional levels is not zero, we need to build upwards
-        if (height > 0) {
-            //save the current height of the skip list
-            int initialHeight = currentHeight;
-            int heightDifference = 0;
-
-            /*
-            while the current height of the skip list (that is, the height of the head and tail
-            items) is less than the number of levels we want to add, we must increase the height
-            of our list (that is, the height of the head and tail pointers) to match this new height
-            */
-            while (currentHeight <= height) {
-                //create new head and tail items
-                SkipListSetItem<T> newHead = new SkipListSetItem<T>(null);
-                SkipListSetItem<T> newTail = new SkipListSetItem<T>(null);
-                //Insert them as we would into a linked list
-                newHead.setNext(newTail);
-                newTail.setPrevious(newHead);
-                //Also insert them on top of the previous head/tail
-                newHead.setBelow(head);
-                newTail.setBelow(tail);
-                head.setAbove(newHead);
-                tail.setAbove(newTail);
-                //Set the head and tail to these new items
-                head = newHead;
-                tail = newTail;
-                //increment the current height of the list
-                currentHeight++;
+    //Like findPredecessors, but stops at the last item at or before the given position on each level
+    private void findPredecessorsAt(int rank) {
+        SkipListSetItem<T> currentItem = head;
+        int traversed = 0;
+        for (int level = currentHeight; level >= 0; level--) {
+            while (currentItem.getNext(level) != tail && traversed + currentItem.getSpan(level) <= rank) {
+                traversed += currentItem.getSpan(level);
+                currentItem = currentItem.getNext(level);
             }
+            update[level] = currentItem;
+            updateRank[level] = traversed;
+        }
+    }
 
-            //if the number of levels to add is less than the height of the list
-            if (height < currentHeight)
-                // set initial height to zero
-                initialHeight = 0;
-            //If the number of levels to add is greater than the initial height
-            if (height > initialHeight)
-                //Set the height difference equal to the difference between the number of levels to add and the initial height
-                heightDifference = height - initialHeight;
-            //Otherwise, set the height difference to 1;
-            else
-                heightDifference = 1;
-
-            //For each level we want to add
-            for (int i = 0; i < heightDifference; i++) {
-                //Go back if the previous item is at the top level
-                while (currentItem.getAbove() == null)
-                    currentItem = currentItem.getPrevious();
-                //Go up on the previous item
-                currentItem = currentItem.getAbove();
-                //create a new item to add on top of the item we've added
-                SkipListSetItem<T> buildItem = new SkipListSetItem<T>(e);
-                //Properly add it to the skip list
-                buildItem.setPrevious(currentItem);
-                buildItem.setNext(currentItem.getNext());
-                currentItem.getNext().setPrevious(buildItem);
-                currentItem.setNext(buildItem);
-                buildItem.setBelow(newItem);
-                newItem.setAbove(buildItem);
-                //set the new item to point to the newly build item on top of it;
-                newItem = buildItem;
+    //Like findPredecessors, but stops at the last item before on each level, for a test that holds for every item
+    //up to some point in the list and none after it
+    private void findPredecessorsWhile(Predicate<? super T> before) {
+        SkipListSetItem<T> currentItem = head;
+        int rank = 0;
+        for (int level = currentHeight; level >= 0; level--) {
+            SkipListSetItem<T> nextItem = currentItem.getNext(level);
+            while (nextItem != tail && before.test(nextItem.getPayload())) {
+                rank += currentItem.getSpan(level);
+                currentItem = nextItem;
+                nextItem = currentItem.getNext(level);
             }
+            update[level] = currentItem;
+            updateRank[level] = rank;
         }
-        //increment the number of items in the list
-        numItems++;
+    }
 
-        //If we need to increase the maximum height, do so
-        if (numItems/heightChanges >= maxHeight) {
-            maxHeight *= 2;
-            heightChanges *= 2;
+    //Removes every item up to and including update[0], given the path a descent left in update and updateRank.
+    //Returns how many there were
+    private int cutPrefix() {
+        int count = updateRank[0];
+        if (count == 0)
+            return 0;
+        //The cut starts from the head, so the path only had to say how far it goes
+        for (int level = 0; level <= currentHeight; level++)
+            update[level] = head;
+        SkipListSetItem<T> firstItem = cutRange(count);
+
+        //The list is whole again, so the listener can do what it likes with it
+        if (evictionListener != null) {
+            SkipListSetItem<T> currentItem = firstItem;
+            for (int i = 0; i < count; i++, currentItem = currentItem.getNext(0))
+                evictionListener.accept(currentItem.getPayload());
         }
-
-        return true;
+        return count;
     }
 
-    //Can suppress unchecked cast warning
-    @Override
-    public boolean remove(Object o) {
-        //Type cast
-        T payload = (T)o;
-        //find the item (or the item before it, if it's not there) we wish to delete, set it to the current item
-        SkipListSetItem<T> currentItem = traverse(payload);
-        //If the item we're looking for is not in the skip list, return false
-        if (currentItem == null || currentItem.getPayload() == null || payload.compareTo(currentItem.getPayload()) != 0)
-            return false;
-        //Get the item before the item we wish to delete
-        SkipListSetItem<T> previousItem = currentItem.getPrevious();
-
-        //Set up a loop that only breaks if we have deleted all of the nodes with the given payload
-        while (currentItem != null) {
-            //Delete the item as we would in a linked list
-            previousItem.setNext(currentItem.getNext());
-            currentItem.getNext().setPrevious(previousItem);
-            //Set all pointers (except below) in the deleted item to null
-            currentItem.setPrevious(null);
-            currentItem.setNext(null);
-            currentItem.setAbove(null);
-            //Set the item itself to null
-            currentItem = null;
-            //If (and while) we are at the top of the previous item, we must move back until we are not at the top
-            while(previousItem.getAbove() == null)
-                previousItem = previousItem.getPrevious();
-            //Go one level higher on the previous position
-            previousItem = previousItem.getAbove();
-            //If the previous item's next item points to an item with a payload we want to delete, Set the current
-            //item equal to the next item after previous item
-            if (previousItem.getNext().getPayload() != null && previousItem.getNext().getPayload().compareTo(payload) == 0)
-                currentItem = previousItem.getNext();
-            //Set the below pointer to null
-            if (currentItem != null)
-                currentItem.setBelow(null);
+    //Removes the count items after update[0] (count must be at least 1), given the items before them on every level
+    //in update. The removed items are walked along the bottom level and each one is spliced out of its own levels as
+    //a sweep would, merging its spans into the link before it, so afterwards each link on the path reaches the
+    //first item past the range and only has to pass over count fewer items. Returns the first removed item; the
+    //removed items keep their own links, so they can still be walked from it (and snapshots that can still see
+    //them can walk past them)
+    private SkipListSetItem<T> cutRange(int count) {
+        SkipListSetItem<T> firstItem = update[0].getNext(0);
+        if (snapshotsOpen())
+            versionLink(update[0]);
+        SkipListSetItem<T> currentItem = firstItem;
+        for (int i = 1; ; i++) {
+            for (int level = 0; level < currentItem.getLevels(); level++) {
+                update[level].setSpan(level, update[level].getSpan(level) + currentItem.getSpan(level));
+                update[level].setNext(level, currentItem.getNext(level));
+                levelCounts[level]--;
+            }
+            if (metrics != null)
+                metrics.recordUnlinked(currentItem.getLevels());
+            if (i == count)
+                break;
+            currentItem = currentItem.getNext(0);
+        }
+        currentItem.getNext(0).setPrevious(update[0]);
+        for (int level = 0; level <= currentHeight; level++) {
+            update[level].setSpan(level, update[level].getSpan(level) - count);
+            update[level] = null;
         }
-        //Decrement the number of items in the list
-        numItems--;
 
-        //If we need to decrease the maximum height, do so
-        if (numItems/heightChanges <= maxHeight) {
+        numItems -= count;
+        modCount++;
+        //Shrink the maximum height and the current height as unlink() would have
+        while (heightChanges > 1 && numItems/heightChanges < maxHeight/8) {
             maxHeight /= 2;
             heightChanges /= 2;
         }
-
-        //If there is an empty level in our skip list (meaning that the item
-        //we deleted was the tallest one in the list), we must remove it
-        if (head.getBelow().getNext() == tail.getBelow()) {
-            //Set pointers to the head and tail of the list
-            SkipListSetItem<T> headPtr = head;
-            SkipListSetItem<T> tailPtr = tail;
-            //The head is now the node below the previous head
-            head = head.getBelow();
-            tail = tail.getBelow();
-            //Nullify all pointers that aren't needed
-            head.setAbove(null);
-            tail.setAbove(null);
-            headPtr.setBelow(null);
-            tailPtr.setBelow(null);
-            headPtr.setNext(null);
-            tailPtr.setPrevious(null);
-            //Nullify the old head and tail pointers
-            headPtr = null;
-            tailPtr = null;
-        }
-
-        //Return true
-        return true;
+        while (currentHeight > 0 && head.getNext(currentHeight) == tail)
+            currentHeight--;
+        if (metrics != null)
+            metrics.recordHeights(currentHeight, maxHeight, heightChanges);
+        return firstItem;
     }
 
-    @Override
-    public boolean containsAll(Collection<?> c) {
-        for (Object o : c)
-            if(!contains(o)) return false;
-        return true;
+    //Returns true if c is a sorted set in the same order as the list, so it can be walked alongside it
+    private boolean isSameOrder(Collection<?> c) {
+        return c instanceof SortedSet && Objects.equals(((SortedSet<?>) c).comparator(), comparator);
     }
 
-    @Override
-    public boolean addAll(Collection<? extends T> c) {
-        for (T e : c)
-            add(e);
-        return true;
+    //Returns the first item at or after startItem (which can be the head) whose payload is greater than or equal to
+    //payload, or the tail if there is none. It moves forward on the highest level of each item it reaches and drops
+    //down when that would go too far, so jumping past d items takes about O(log d) steps
+    private SkipListSetItem<T> seekFrom(SkipListSetItem<T> startItem, T payload) {
+        if (startItem == tail || (startItem != head && compare(startItem.getPayload(), payload) >= 0))
+            return startItem;
+        SkipListSetItem<T> currentItem = startItem;
+        int level = Math.min(currentItem.getLevels() - 1, currentHeight);
+        while (level >= 0) {
+            SkipListSetItem<T> nextItem = currentItem.getNext(level);
+            if (nextItem != tail && compare(nextItem.getPayload(), payload) < 0) {
+                //Move forward, and climb to the top of the new item
+                currentItem = nextItem;
+                level = currentItem.getLevels() - 1;
+            }
+            else
+                level--;
+        }
+        return currentItem.getNext(0);
     }
 
-    //Retains all of the items in the skip list
-    @Override
-    public boolean retainAll(Collection<?> c) {
-        //Create a new skip list, add all of Objects in C to i
-        clear();
-        for (Object o : c) {
-            T payload = (T)o;
-            add(payload);
+    //Walks this set and the other set (which must be in the same order) side by side, appending to a new set the
+    //items only one of them has, and the items both have if keepCommon is true
+    private SkipListSet<T> merge(SortedSet<? extends T> other, boolean keepCommon) {
+        SkipListSet<T> result = new SkipListSet<T>(comparator, levelGenerator);
+        Iterator<? extends T> otherIterator = other.iterator();
+        T otherPayload = otherIterator.hasNext() ? otherIterator.next() : null;
+        SkipListSetItem<T> currentItem = head.getNext(0);
+        while (currentItem != tail && otherPayload != null) {
+            int comparison = compare(currentItem.getPayload(), otherPayload);
+            if (comparison < 0) {
+                result.add(currentItem.getPayload());
+                currentItem = currentItem.getNext(0);
+            }
+            else if (comparison > 0) {
+                result.add(otherPayload);
+                otherPayload = otherIterator.hasNext() ? otherIterator.next() : null;
+            }
+            else {
+                if (keepCommon)
+                    result.add(otherPayload);
+                currentItem = currentItem.getNext(0);
+                otherPayload = otherIterator.hasNext() ? otherIterator.next() : null;
+            }
         }
-        return false;
+        //Whatever is left on either side goes on the end
+        for (; currentItem != tail; currentItem = currentItem.getNext(0))
+            result.add(currentItem.getPayload());
+        for (; otherPayload != null; otherPayload = otherIterator.hasNext() ? otherIterator.next() : null)
+            result.add(otherPayload);
+        return result;
     }
 
-    //Removes all items in a collection of items from the skip list, if they exist.
-    @Override
-    public boolean removeAll(Collection<?> c) {
-        for (Object o : c)
-            remove(o);
-        return true;
+    //Removes every item that keep rejects, in one walk along the bottom level. The last item kept on each level is
+    //tracked as the walk goes, so a removed item is spliced out on its own levels only, and the spans of the links
+    //that are left are worked out from the positions of the items they join. Returns the number of items removed.
+    //If keep throws, the items it hadn't got to yet are kept, and the list is left whole with the removals so far
+    private int sweep(Predicate<? super T> keep) {
+        for (int level = 0; level <= currentHeight; level++) {
+            update[level] = head;
+            updateRank[level] = 0;
+        }
+        int rank = 0;
+        int removed = 0;
+        SkipListSetItem<T> currentItem = head.getNext(0);
+        try {
+            while (currentItem != tail) {
+                SkipListSetItem<T> nextItem = currentItem.getNext(0);
+                if (keep.test(currentItem.getPayload()))
+                    sweepPast(currentItem, ++rank);
+                else {
+                    if (snapshotsOpen())
+                        versionLink(update[0]);
+                    for (int level = 0; level < currentItem.getLevels(); level++) {
+                        update[level].setNext(level, currentItem.getNext(level));
+                        levelCounts[level]--;
+                    }
+                    nextItem.setPrevious(update[0]);
+                    if (metrics != null)
+                        metrics.recordUnlinked(currentItem.getLevels());
+                    removed++;
+                }
+                currentItem = nextItem;
+            }
+        }
+        finally {
+            //If keep threw, walk the rest of the list as kept items so the spans and the count still come out right
+            for (; currentItem != tail; currentItem = currentItem.getNext(0))
+                sweepPast(currentItem, ++rank);
+
+            //Close off every level at the tail
+            numItems = rank;
+            for (int level = 0; level <= currentHeight; level++) {
+                update[level].setSpan(level, numItems + 1 - updateRank[level]);
+                update[level] = null;
+            }
+            if (removed > 0) {
+                modCount++;
+                //Shrink the maximum height and the current height as unlink() would have
+                while (heightChanges > 1 && numItems/heightChanges < maxHeight/8) {
+                    maxHeight /= 2;
+                    heightChanges /= 2;
+                }
+                while (currentHeight > 0 && head.getNext(currentHeight) == tail)
+                    currentHeight--;
+                if (metrics != null)
+                    metrics.recordHeights(currentHeight, maxHeight, heightChanges);
+            }
+        }
+        if (removed > 0)
+            afterMutations(removed);
+        return removed;
     }
 
-    @Override
-    public void clear() {
-        //Since the Java garbage collection system handles deleteion, all we have to do to clear a list is to make a new one
-        head = new SkipListSetItem<T>(null);
-        tail = new SkipListSetItem<T>(null);
-        head.setNext(tail);
-        tail.setPrevious(head);
-
-        numItems = 0;
-        maxHeight = 2;
-        currentHeight = 0;
-        heightChanges = 1;
+    //Moves a sweep past an item it keeps, at the given position: the item ends the span of the last kept item on
+    //each of its levels and becomes the last kept item there
+    private void sweepPast(SkipListSetItem<T> item, int rank) {
+        for (int level = 0; level < item.getLevels(); level++) {
+            update[level].setSpan(level, rank - updateRank[level]);
+            update[level] = item;
+            updateRank[level] = rank;
+        }
     }
 
-    @Override
-    public Comparator<? super T> comparator() {
-        //This can just return null
-        return null;
+    //Removes an item an iterator returned. The search starts from the iterator's cursor (made here on its first
+    //removal), so removals made while walking along only climb as far as the gaps between them need. Nothing is
+    //evicted here, since an eviction could cut off items the iterator hasn't got to yet; the next change made
+    //other than through an iterator evicts as usual
+    private SkipListSetCursor removeIterated(SkipListSetItem<T> item, SkipListSetCursor cursor) {
+        if (cursor == null)
+            cursor = new SkipListSetCursor();
+        if (cursor.unlinkNear(item.getPayload()))
+            advanceRepair(1);
+        return cursor;
     }
 
-    //Method not supported, throws exception
-    @Override
-    public SortedSet<T> subSet(T fromElement, T toElement) {
-        throw new UnsupportedOperationException("Error: Method subSet(T, T) not supported!", null);
+    //Returns true if any snapshot is still open, so changes have to be versioned
+    private boolean snapshotsOpen() {
+        if (openSnapshots == null || openSnapshots.isEmpty())
+            return false;
+        releaseCollectedSnapshots();
+        return !openSnapshots.isEmpty();
     }
 
-    //Method not supported, throws exception
-    @Override
-    public SortedSet<T> headSet(T toElement) {
-        throw new UnsupportedOperationException("Error: Method headSet(T) not supported!", null);
+    //Called (while snapshots are open) before the bottom-level link of item changes
+    private void versionLink(SkipListSetItem<T> item) {
+        if (item.versionLink(version, newestSnapshot))
+            versionedItems.add(item);
     }
 
-    //Method not supported, throws exception
-    @Override
-    public SortedSet<T> tailSet(T fromElement) {
-        throw new UnsupportedOperationException("Error: Method tailSet(T) not supported!", null);
+    //Releases the snapshots that were closed, or garbage collected without being closed, since the last change
+    private void releaseCollectedSnapshots() {
+        for (Reference<?> reference = releasedSnapshots.poll(); reference != null; reference = releasedSnapshots.poll())
+            releaseSnapshot((SnapshotReference) reference);
     }
 
-    //Returns first item in list
-    @Override
-    public T first() {
-        //Pointer to traverse down the head
-        SkipListSetItem<T> firstItem = head;
-
-        //Traverse down the head
-        while (firstItem.getBelow() != null)
-            firstItem = firstItem.getBelow();
-
-        //Return the first item, if the list is not empty
-        if (firstItem.getNext() != null)
-            return firstItem.getNext().getPayload();
-
-        //Otherwise return null
-        return null;
+    //Releases a snapshot. Once none are open, no old link can be reached any more, so the histories are dropped
+    private void releaseSnapshot(SnapshotReference reference) {
+        if (!openSnapshots.remove(reference) || !openSnapshots.isEmpty())
+            return;
+        for (SkipListSetItem<T> item : versionedItems)
+            item.clearHistory();
+        versionedItems.clear();
     }
 
-    @Override
-    public T last() {
-        //Pointer to traverse down the tail
-        SkipListSetItem<T> lastItem = tail;
+    //Returns the last item before payload (the last item, if payload is null) that was already in the list at
+    //snapshotVersion, or the head. It descends like lowerItem but only through published links, and never steps
+    //onto an item added after that version, so it is safe while the writer changes the list. Items reached this
+    //way were in the list at the snapshot, because removed items keep their links and are never put back
+    private SkipListSetItem<T> lowerItemAt(T payload, int snapshotVersion) {
+        SkipListSetItem<T> currentItem = head;
+        for (int level = currentHeight; level >= 0; level--) {
+            SkipListSetItem<T> nextItem = currentItem.getNextAcquire(level);
+            while (nextItem != null && nextItem != tail && nextItem.getVersion() <= snapshotVersion
+                    && (payload == null || compare(nextItem.getPayload(), payload) < 0)) {
+                currentItem = nextItem;
+                nextItem = currentItem.getNextAcquire(level);
+            }
+        }
+        return currentItem;
+    }
 
-        //Traverse down the tail
-        while (lastItem.getBelow() != null)
-            lastItem = lastItem.getBelow();
+    //Returns the first item greater than or equal to payload in the list as it was at snapshotVersion (the tail if
+    //there is none). The search finds an item before payload that was there at that version, then walks forward
+    //along the old links
+    private SkipListSetItem<T> ceilingAt(T payload, int snapshotVersion) {
+        SkipListSetItem<T> item = lowerItemAt(payload, snapshotVersion);
+        SkipListSetItem<T> nextItem = item.getNextAt(snapshotVersion);
+        while (nextItem != tail && compare(nextItem.getPayload(), payload) < 0)
+            nextItem = nextItem.getNextAt(snapshotVersion);
+        return nextItem;
+    }
 
-        //Return the last item, if the list is not empty
-        if (lastItem.getPrevious() != null)
-            return lastItem.getPrevious().getPayload();
-            
-        //Otherwise return null
-        return null;
+    //Returns the last item strictly less than payload (or the last item, if payload is null) in the list as it was
+    //at snapshotVersion (the head if there is none), searching the same way as ceilingAt
+    private SkipListSetItem<T> lowerAt(T payload, int snapshotVersion) {
+        SkipListSetItem<T> item = lowerItemAt(payload, snapshotVersion);
+        SkipListSetItem<T> nextItem = item.getNextAt(snapshotVersion);
+        while (nextItem != tail && (payload == null || compare(nextItem.getPayload(), payload) < 0)) {
+            item = nextItem;
+            nextItem = item.getNextAt(snapshotVersion);
+        }
+        return item;
     }
 
-    //Method to calculate what the additional height of each item should be during insertion
-    public int calculateHeight() {
+    //Serializes the set through SerializedForm
+    private Object writeReplace() {
+        return new SerializedForm<T>(this);
+    }
 
-        //Start at zero
-        int additionalLevels = 0;
+    //Sets are only ever read through SerializedForm
+    private void readObject(ObjectInputStream in) throws InvalidObjectException {
+        throw new InvalidObjectException("Error: SkipListSet must be read through its serialized form!");
+    }
 
-        /*
-        We want the probability of the number of levels to be half that of the probability of it being the previous level
-        (i.e. 2 = 50%, 3 = 25%, etc.) to do this, we randomly generate a boolean and increment the number of levels until
-        that boolean is false (or until we reached the max height of the list) 
-         */
-        while (rand.nextBoolean() && additionalLevels < maxHeight - 1) {
-            additionalLevels++;
+    //Starts building the list by appending items in ascending order (see append). The list must be empty
+    private void startBuild() {
+        for (int level = 0; level < MAX_LEVEL; level++) {
+            update[level] = head;
+            updateRank[level] = 0;
         }
+    }
 
-        //return the number of additional levels
-        return additionalLevels;
+    //Returns true if payload can be appended, meaning it is greater than every item so far
+    private boolean canAppend(T payload) {
+        return update[0] == head || compare(update[0].getPayload(), payload) < 0;
     }
 
-    //Rebalance method to rebalance the height of all list items
-    public void reBalance() {
-        //Set the current height to 0
-        currentHeight = 0;
-        
-        // Start at the bottom of the head (which will be our new head)
-        while (head.getBelow() != null)
-            head = head.getBelow();
-        
-        //Remove the nodes on top of head
-        head.setAbove(null);
-            
-        //Pointer for iterating over the list
-        SkipListSetItem<T> currentItem = head.getNext();
-        //Pointer for keeping track of the previous item in our list
-        SkipListSetItem<T> previousItem = head;
-
-        //Also remove the items on top of the tail
-        while (tail.getBelow() != null)
-            tail = tail.getBelow();
-        tail.setAbove(null);
-        
-        //This skip list is now effectively a sorted list that we can iterate over
-        //So, for each item in the list
-        while (currentItem != null) {
-            //Nullify the pointers to the node above it
-            currentItem.setAbove(null);
-
-            //Assign a random height to it
-            int height = calculateHeight();
-            //If this height is not zero
-            if (height > 0) {
-                //Create a traversal pointer to iterate up the height of the current item
-                SkipListSetItem<T> newCurrentItem = currentItem;
-                //Variables for initial height and height difference
-                int initialHeight = currentHeight;
-                int heightDifference;
-                /*
-                while the randomly calculated height is larger than the current height of our list,
-                we need to increase the height of our list (that is, the height of the head and tail
-                pointers)
-                */
-                while (currentHeight <= height) {
-                    //Create new head and tail pointers
-                    SkipListSetItem<T> newHead = new SkipListSetItem<T>(null);
-                    SkipListSetItem<T> newTail = new SkipListSetItem<T>(null);
-                    //Insert them as you would into a linked list
-                    newHead.setNext(newTail);
-                    newTail.setPrevious(newHead);
-                    //Also insert them on top of the previous head/tail
-                    newHead.setBelow(head);
-                    newTail.setBelow(tail);
-                    head.setAbove(newHead);
-                    tail.setAbove(newTail);
-                    //These are now the new head and tail
-                    head = newHead;
-                    tail = newTail;
-                    //Finally, increase the current height of our list
-                    currentHeight++;
-                }
+    //Appends an item greater than every item so far, linking it after the last item on each of its levels. Spans
+    //are worked out from positions as in reBalance(), so each item only costs its own height
+    private void append(T payload) {
+        int height = calculateHeight();
+        SkipListSetItem<T> newItem = newItem(payload, height + 1);
+        int rank = numItems + 1;
+        newItem.setPrevious(update[0]);
+        for (int level = 0; level <= height; level++) {
+            update[level].setNext(level, newItem);
+            update[level].setSpan(level, rank - updateRank[level]);
+            update[level] = newItem;
+            updateRank[level] = rank;
+            levelCounts[level]++;
+        }
+        if (height > currentHeight)
+            currentHeight = height;
+        numItems++;
+        if (numItems/heightChanges >= maxHeight) {
+            maxHeight *= 2;
+            heightChanges *= 2;
+        }
+        if (metrics != null)
+            metrics.recordLinked(height + 1);
+    }
 
-                //If the randomly calculated height is less than the height of the list
-                if (height < currentHeight)
-                    //Set the initial height to zero
-                    initialHeight = 0;
-                //If the randomly calculated height is greater than the initial height
-                if (height > initialHeight)
-                    //Set the height difference to be the difference between calculated height and the initial height
-                    heightDifference = height - initialHeight;
-                //Otherwise, set the Height difference to 1
-                else
-                    heightDifference = 1;
-                
-                //For each level we want to add
-                for (int i = 0; i < heightDifference; i++) {
-                    //Go back if the previous item is at the top level
-                    while (previousItem.getAbove() == null)
-                        previousItem = previousItem.getPrevious();
-                    //Go up on the previous item
-                    previousItem = previousItem.getAbove();
-                    //Create a new item to add on top of the item we've added
-                    SkipListSetItem<T> newItem = new SkipListSetItem<T>(newCurrentItem.getPayload());
-                    //Properly add it to the skip list
-                    newItem.setPrevious(previousItem);
-                    newItem.setNext(previousItem.getNext());
-                    previousItem.getNext().setPrevious(newItem);
-                    previousItem.setNext(newItem);
-                    //Also insert it on top of our current item
-                    newItem.setBelow(newCurrentItem);
-                    newCurrentItem.setAbove(newItem);
-                    //Set the current item to the item we've just built
-                    newCurrentItem = newItem;
-                }
-            }
-            //Traverse
-            currentItem = currentItem.getNext();
-            if (currentItem != null)
-                previousItem = currentItem.getPrevious();
+    //Finishes a build, closing off every level at the tail
+    private void finishBuild() {
+        tail.setPrevious(update[0]);
+        for (int level = 0; level < MAX_LEVEL; level++) {
+            update[level].setNext(level, tail);
+            update[level].setSpan(level, numItems + 1 - updateRank[level]);
+            update[level] = null;
         }
+        modCount++;
+        if (metrics != null)
+            metrics.recordHeights(currentHeight, maxHeight, heightChanges);
     }
 
-    //Traverses the skip list up until the item we want (for contains/delete) or the item before the item we want (insert)
-    private SkipListSetItem<T> traverse(T payload) {
-        //Start at the head of the linked list
-        SkipListSetItem<T> currentItem = head;
-        //Flag to fire if we are at the final position (either at payload (contains/delete) or the node before payload (insert))
-        boolean finalPosition = false;
+    //Writes out a block: its length goes in the space left at the start of the buffer
+    private static void writeBlock(WritableByteChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.putInt(0, buffer.position() - Integer.BYTES);
+        buffer.flip();
+        writeFully(channel, buffer);
+        buffer.clear();
+    }
 
-        while (!finalPosition) {
-            //While our current item is less that the value of the next item in the row, and we are not at the end of the row
-            while (currentItem.getNext() != null && currentItem.getNext().getPayload() != null && currentItem.getNext().getPayload().compareTo(payload) <= 0)
-                //Get the next item
-                currentItem = currentItem.getNext();
-            //If we can go down from the current node, do so
-            if (currentItem.getBelow() != null)
-                currentItem = currentItem.getBelow();
-            //Otherwise, we have reached the lowest position of the node we are looking for
-            else
-                finalPosition = true;
-        }
-        //Return the item
-        return currentItem;
+    //Writes everything left in the buffer to the channel
+    private static void writeFully(WritableByteChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+    }
+
+    //Fills the buffer up to its limit from the channel
+    private static void readFully(ReadableByteChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining())
+            if (channel.read(buffer) < 0)
+                throw new EOFException("Error: Unexpected end of skip list set data!");
     }
 }
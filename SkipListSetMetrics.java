@@ -0,0 +1,231 @@
+// Operation metrics for the skip list set
+// Program created by Connor Cribley
+
+/*
+    DISCLAIMER: This program was created in its entirety by Connor Cribley. I do not authorize anybody to
+    replicate, alter, submit, or otherwise use this program in a way which violates the academic integrity of any
+    educational institution. Any attempt to use this code to commit academic plagiarism was done so without my
+    permission.
+*/
+
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/*
+Counters describing how a SkipListSet is searched and how its shape changes. A set only keeps metrics after
+SkipListSet.enableMetrics() is called; until then the only cost is a null check per operation.
+
+    searches              descents from the head (contains, add, remove, floor, ...)
+    horizontal steps      links followed forward during those descents
+    vertical steps        levels dropped down during those descents
+    comparisons           compareTo calls made during those descents
+    level histogram       number of items with each number of levels (index 0 is items on the bottom level only)
+    height growths        times a new item made the list taller
+    height shrinks        times a removal left the top level empty
+    max height growths    times maxHeight doubled (and shrinks, times it halved)
+    rebalances            calls to reBalance() and how long they took
+
+With p = 1/2 a healthy list searches in about 2 log2(n) steps and has about half its items on each level above
+the one below it; steps per search creeping up or a lopsided histogram means the levels have degraded.
+
+The counters are only written by the thread using the set, so readers on other threads (such as JMX) can see
+values that are slightly behind. Use snapshot() for a copy that doesn't change.
+*/
+public class SkipListSetMetrics implements SkipListSetMetricsMBean {
+
+    //Searches
+    private long searches;
+    private long horizontalSteps;
+    private long verticalSteps;
+    private long comparisons;
+
+    //Shape of the list
+    private final long[] levelHistogram;
+    private long items;
+    private int currentHeight;
+    private int maxHeight;
+    private int heightChanges;
+    private long heightGrowths;
+    private long heightShrinks;
+    private long maxHeightGrowths;
+    private long maxHeightShrinks;
+
+    //Rebalancing
+    private long reBalances;
+    private long lastReBalanceNanos;
+    private long maxReBalanceNanos;
+    private long totalReBalanceNanos;
+
+    //Name this is registered under, if it is
+    private ObjectName objectName;
+
+
+    //Constructors
+
+    //Builds empty metrics for a list whose items have at most maxLevel levels
+    SkipListSetMetrics(int maxLevel) {
+        levelHistogram = new long[maxLevel];
+    }
+
+    //Builds a copy of other
+    private SkipListSetMetrics(SkipListSetMetrics other) {
+        searches = other.searches;
+        horizontalSteps = other.horizontalSteps;
+        verticalSteps = other.verticalSteps;
+        comparisons = other.comparisons;
+        levelHistogram = other.levelHistogram.clone();
+        items = other.items;
+        currentHeight = other.currentHeight;
+        maxHeight = other.maxHeight;
+        heightChanges = other.heightChanges;
+        heightGrowths = other.heightGrowths;
+        heightShrinks = other.heightShrinks;
+        maxHeightGrowths = other.maxHeightGrowths;
+        maxHeightShrinks = other.maxHeightShrinks;
+        reBalances = other.reBalances;
+        lastReBalanceNanos = other.lastReBalanceNanos;
+        maxReBalanceNanos = other.maxReBalanceNanos;
+        totalReBalanceNanos = other.totalReBalanceNanos;
+    }
+
+    //Returns a copy of the metrics as they are now, which later operations on the set don't change
+    public SkipListSetMetrics snapshot() {
+        return new SkipListSetMetrics(this);
+    }
+
+    //Registers these metrics with the platform MBean server as SkipListSet:type=Metrics,name=<name>
+    public ObjectName register(String name) throws JMException {
+        ObjectName objectName = new ObjectName("SkipListSet:type=Metrics,name=" + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        this.objectName = objectName;
+        return objectName;
+    }
+
+    //Removes these metrics from the platform MBean server, if they were registered
+    public void unregister() throws JMException {
+        if (objectName != null) {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+            objectName = null;
+        }
+    }
+
+    @Override
+    public void reset() {
+        searches = 0;
+        horizontalSteps = 0;
+        verticalSteps = 0;
+        comparisons = 0;
+        heightGrowths = 0;
+        heightShrinks = 0;
+        maxHeightGrowths = 0;
+        maxHeightShrinks = 0;
+        reBalances = 0;
+        lastReBalanceNanos = 0;
+        maxReBalanceNanos = 0;
+        totalReBalanceNanos = 0;
+    }
+
+
+    //Getters
+
+    @Override
+    public long getSearches() { return searches; }
+    @Override
+    public long getHorizontalSteps() { return horizontalSteps; }
+    @Override
+    public long getVerticalSteps() { return verticalSteps; }
+    @Override
+    public long getComparisons() { return comparisons; }
+    @Override
+    public double getAverageStepsPerSearch() { return searches == 0 ? 0 : (double) (horizontalSteps + verticalSteps) / searches; }
+    @Override
+    public double getAverageComparisonsPerSearch() { return searches == 0 ? 0 : (double) comparisons / searches; }
+    @Override
+    public long getItems() { return items; }
+    @Override
+    public long[] getLevelHistogram() { return levelHistogram.clone(); }
+    @Override
+    public int getCurrentHeight() { return currentHeight; }
+    @Override
+    public int getMaxHeight() { return maxHeight; }
+    @Override
+    public int getHeightChanges() { return heightChanges; }
+    @Override
+    public long getHeightGrowths() { return heightGrowths; }
+    @Override
+    public long getHeightShrinks() { return heightShrinks; }
+    @Override
+    public long getMaxHeightGrowths() { return maxHeightGrowths; }
+    @Override
+    public long getMaxHeightShrinks() { return maxHeightShrinks; }
+    @Override
+    public long getReBalances() { return reBalances; }
+    @Override
+    public long getLastReBalanceNanos() { return lastReBalanceNanos; }
+    @Override
+    public long getMaxReBalanceNanos() { return maxReBalanceNanos; }
+    @Override
+    public long getTotalReBalanceNanos() { return totalReBalanceNanos; }
+
+    @Override
+    public String toString() {
+        return "searches=" + searches + ", steps/search=" + getAverageStepsPerSearch() + ", comparisons/search="
+            + getAverageComparisonsPerSearch() + ", items=" + items + ", levels=" + Arrays.toString(levelHistogram)
+            + ", currentHeight=" + currentHeight + ", maxHeight=" + maxHeight + ", reBalances=" + reBalances;
+    }
+
+
+    //Recording, called by the set
+
+    //Records one descent from the head
+    void recordSearch(int horizontal, int vertical, int compared) {
+        searches++;
+        horizontalSteps += horizontal;
+        verticalSteps += vertical;
+        comparisons += compared;
+    }
+
+    //Records an item with the given number of levels being linked in
+    void recordLinked(int levels) {
+        levelHistogram[levels - 1]++;
+        items++;
+    }
+
+    //Records an item with the given number of levels being unlinked
+    void recordUnlinked(int levels) {
+        levelHistogram[levels - 1]--;
+        items--;
+    }
+
+    //Records the heights of the list after a change, counting how often they moved
+    void recordHeights(int currentHeight, int maxHeight, int heightChanges) {
+        if (currentHeight > this.currentHeight)
+            heightGrowths++;
+        else if (currentHeight < this.currentHeight)
+            heightShrinks++;
+        if (maxHeight > this.maxHeight)
+            maxHeightGrowths++;
+        else if (maxHeight < this.maxHeight)
+            maxHeightShrinks++;
+        this.currentHeight = currentHeight;
+        this.maxHeight = maxHeight;
+        this.heightChanges = heightChanges;
+    }
+
+    //Records that every item was unlinked
+    void recordCleared() {
+        Arrays.fill(levelHistogram, 0);
+        items = 0;
+    }
+
+    //Records a call to reBalance() that took the given time
+    void recordReBalance(long nanos) {
+        reBalances++;
+        lastReBalanceNanos = nanos;
+        maxReBalanceNanos = Math.max(maxReBalanceNanos, nanos);
+        totalReBalanceNanos += nanos;
+    }
+}
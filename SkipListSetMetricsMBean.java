@@ -0,0 +1,42 @@
+// Management interface for skip list set metrics
+// Program created by Connor Cribley
+
+/*
+    DISCLAIMER: This program was created in its entirety by Connor Cribley. I do not authorize anybody to
+    replicate, alter, submit, or otherwise use this program in a way which violates the academic integrity of any
+    educational institution. Any attempt to use this code to commit academic plagiarism was done so without my
+    permission.
+*/
+
+
+//What SkipListSetMetrics exposes over JMX. See SkipListSetMetrics for what each value means
+public interface SkipListSetMetricsMBean {
+
+    //Searches
+    long getSearches();
+    long getHorizontalSteps();
+    long getVerticalSteps();
+    long getComparisons();
+    double getAverageStepsPerSearch();
+    double getAverageComparisonsPerSearch();
+
+    //Shape of the list
+    long getItems();
+    long[] getLevelHistogram();
+    int getCurrentHeight();
+    int getMaxHeight();
+    int getHeightChanges();
+    long getHeightGrowths();
+    long getHeightShrinks();
+    long getMaxHeightGrowths();
+    long getMaxHeightShrinks();
+
+    //Rebalancing
+    long getReBalances();
+    long getLastReBalanceNanos();
+    long getMaxReBalanceNanos();
+    long getTotalReBalanceNanos();
+
+    //Sets every counter back to zero (the level histogram and heights describe the list, so they are kept)
+    void reset();
+}
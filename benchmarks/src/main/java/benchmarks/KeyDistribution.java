@@ -0,0 +1,77 @@
+package benchmarks;
+
+import java.util.SplittableRandom;
+
+/*
+How the benchmarks pick which of the n keys in a set to touch next. Every distribution returns indexes in
+[0, n); the benchmarks turn index i into the key 2i (which is in the set) or 2i + 1 (which isn't).
+*/
+public enum KeyDistribution {
+
+    //Every key is equally likely
+    RANDOM {
+        @Override
+        long[] indexes(int count, int n, SplittableRandom random) {
+            long[] indexes = new long[count];
+            for (int i = 0; i < count; i++)
+                indexes[i] = random.nextInt(n);
+            return indexes;
+        }
+    },
+
+    //Keys in ascending order, wrapping around at the end
+    SEQUENTIAL {
+        @Override
+        long[] indexes(int count, int n, SplittableRandom random) {
+            long[] indexes = new long[count];
+            int start = random.nextInt(n);
+            for (int i = 0; i < count; i++)
+                indexes[i] = (start + i) % n;
+            return indexes;
+        }
+    },
+
+    //A few keys are hot and most are cold (Zipf with exponent 0.99, as in YCSB). Ranks are scattered over the key
+    //space so the hot keys aren't all next to each other
+    ZIPFIAN {
+        @Override
+        long[] indexes(int count, int n, SplittableRandom random) {
+            double theta = 0.99;
+            double zetaN = zeta(n, theta);
+            double alpha = 1 / (1 - theta);
+            double eta = (1 - Math.pow(2.0 / n, 1 - theta)) / (1 - zeta(2, theta) / zetaN);
+            long[] indexes = new long[count];
+            for (int i = 0; i < count; i++) {
+                //Draw a rank (0 is the hottest) using the method of Gray et al., "Quickly Generating Billion-Record
+                //Synthetic Databases"
+                double u = random.nextDouble();
+                double uz = u * zetaN;
+                long rank;
+                if (uz < 1)
+                    rank = 0;
+                else if (uz < 1 + Math.pow(0.5, theta))
+                    rank = 1;
+                else
+                    rank = (long) (n * Math.pow(eta * u - eta + 1, alpha));
+                indexes[i] = scatter(Math.min(rank, n - 1), n);
+            }
+            return indexes;
+        }
+
+        //Sum of 1 / i^theta for i from 1 to n
+        private double zeta(long n, double theta) {
+            double sum = 0;
+            for (long i = 1; i <= n; i++)
+                sum += 1 / Math.pow(i, theta);
+            return sum;
+        }
+
+        //Maps a rank to an index with a multiplicative hash
+        private long scatter(long rank, int n) {
+            return Long.remainderUnsigned(rank * 0x9E3779B97F4A7C15L, n);
+        }
+    };
+
+    //Returns count indexes in [0, n)
+    abstract long[] indexes(int count, int n, SplittableRandom random);
+}
@@ -0,0 +1,55 @@
+package benchmarks;
+
+import java.lang.invoke.MethodHandle;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.SortedSet;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+//Measures SkipListSet.reBalance(), which has no counterpart in the JDK sets
+@State(Scope.Thread)
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class ReBalanceBenchmark {
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    public int size;
+
+    //Set under test and a handle to its reBalance() method
+    private SortedSet<Long> set;
+    private MethodHandle reBalance;
+
+    @Setup
+    public void setUp() {
+        List<Long> keys = new ArrayList<Long>(size);
+        for (long i = 0; i < size; i++)
+            keys.add(2 * i);
+        Collections.shuffle(keys, new Random(42));
+
+        set = Sets.create(Sets.SKIP_LIST_SET);
+        set.addAll(keys);
+        reBalance = Sets.reBalance();
+    }
+
+    @Benchmark
+    public SortedSet<Long> reBalance() throws Throwable {
+        reBalance.invokeExact((Object) set);
+        return set;
+    }
+}
@@ -0,0 +1,147 @@
+package benchmarks;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.SortedSet;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+Compares SkipListSet and LockFreeSkipListSet with TreeSet and ConcurrentSkipListSet on a set of n Long keys.
+Each benchmark reports throughput and sampled latency percentiles; run with "-prof gc" for allocation rates:
+
+    java -jar target/benchmarks.jar SetBenchmark -prof gc
+
+Single-key operations take their keys from a precomputed array of indexes drawn from the key distribution, so
+generating keys isn't part of what is measured.
+*/
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class SetBenchmark {
+
+    //Number of precomputed indexes (a power of two, so wrapping around is a mask)
+    private static final int INDEXES = 1 << 20;
+
+    @Param({Sets.SKIP_LIST_SET, Sets.LOCK_FREE_SKIP_LIST_SET, Sets.TREE_SET, Sets.CONCURRENT_SKIP_LIST_SET})
+    public String implementation;
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    public int size;
+
+    @Param({"RANDOM", "SEQUENTIAL", "ZIPFIAN"})
+    public KeyDistribution distribution;
+
+    //Set under test, holding the keys 0, 2, 4, ... 2(size - 1)
+    private SortedSet<Long> set;
+
+    //Those keys as a sorted list and in random order, for addAll
+    private List<Long> sortedKeys;
+    private List<Long> shuffledKeys;
+
+    //Indexes of the keys to use, and where we are in them
+    private long[] indexes;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        sortedKeys = new ArrayList<Long>(size);
+        for (long i = 0; i < size; i++)
+            sortedKeys.add(2 * i);
+        shuffledKeys = new ArrayList<Long>(sortedKeys);
+        Collections.shuffle(shuffledKeys, new Random(42));
+
+        set = Sets.create(implementation);
+        set.addAll(shuffledKeys);
+
+        indexes = distribution.indexes(INDEXES, size, new SplittableRandom(42));
+        next = 0;
+    }
+
+    //Returns the index of the next key to use
+    private long nextIndex() {
+        long index = indexes[next];
+        next = (next + 1) & (INDEXES - 1);
+        return index;
+    }
+
+    //Looks up a key that is in the set
+    @Benchmark
+    public boolean contains() {
+        return set.contains(2 * nextIndex());
+    }
+
+    //Looks up a key that isn't in the set
+    @Benchmark
+    public boolean containsMissing() {
+        return set.contains(2 * nextIndex() + 1);
+    }
+
+    //Adds a key that isn't in the set, then removes it again so the set stays the same size
+    @Benchmark
+    public boolean addRemove() {
+        Long key = 2 * nextIndex() + 1;
+        set.add(key);
+        return set.remove(key);
+    }
+
+    //Removes a key that is in the set, then adds it back so the set stays the same size
+    @Benchmark
+    public boolean removeAdd() {
+        Long key = 2 * nextIndex();
+        set.remove(key);
+        return set.add(key);
+    }
+
+    //Walks the whole set in order
+    @Benchmark
+    public long iterate() {
+        long sum = 0;
+        for (Iterator<Long> it = set.iterator(); it.hasNext(); )
+            sum += it.next();
+        return sum;
+    }
+
+    @Benchmark
+    public Long first() {
+        return set.first();
+    }
+
+    @Benchmark
+    public Long last() {
+        return set.last();
+    }
+
+    //Builds a new set from keys that are already in order
+    @Benchmark
+    public SortedSet<Long> addAllSorted() {
+        SortedSet<Long> newSet = Sets.create(implementation);
+        newSet.addAll(sortedKeys);
+        return newSet;
+    }
+
+    //Builds a new set from keys in random order
+    @Benchmark
+    public SortedSet<Long> addAllShuffled() {
+        SortedSet<Long> newSet = Sets.create(implementation);
+        newSet.addAll(shuffledKeys);
+        return newSet;
+    }
+}
@@ -0,0 +1,59 @@
+package benchmarks;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/*
+Creates the sets being compared. JMH only accepts benchmarks in a named package, and classes in a named package
+can't refer to classes in the default package (where SkipListSet lives), so the skip list classes are loaded by
+name and used through SortedSet. Their own methods, like reBalance(), are called through method handles.
+*/
+final class Sets {
+
+    //Implementations that can be passed as the "implementation" parameter
+    static final String SKIP_LIST_SET = "SkipListSet";
+    static final String LOCK_FREE_SKIP_LIST_SET = "LockFreeSkipListSet";
+    static final String TREE_SET = "TreeSet";
+    static final String CONCURRENT_SKIP_LIST_SET = "ConcurrentSkipListSet";
+
+    private Sets() {
+    }
+
+    //Returns a new, empty set of the given implementation
+    @SuppressWarnings("unchecked")
+    static SortedSet<Long> create(String implementation) {
+        switch (implementation) {
+            case TREE_SET:
+                return new TreeSet<Long>();
+            case CONCURRENT_SKIP_LIST_SET:
+                return new ConcurrentSkipListSet<Long>();
+            case SKIP_LIST_SET:
+            case LOCK_FREE_SKIP_LIST_SET:
+                try {
+                    return (SortedSet<Long>) Class.forName(implementation).getConstructor().newInstance();
+                }
+                catch (ReflectiveOperationException e) {
+                    throw new IllegalStateException("Error: Could not create " + implementation + "!", e);
+                }
+            default:
+                throw new IllegalArgumentException("Error: Unknown implementation " + implementation + "!");
+        }
+    }
+
+    //Returns a handle to SkipListSet.reBalance() taking the set as its argument
+    static MethodHandle reBalance() {
+        try {
+            Class<?> skipListSet = Class.forName(SKIP_LIST_SET);
+            return MethodHandles.publicLookup()
+                .findVirtual(skipListSet, "reBalance", MethodType.methodType(void.class))
+                .asType(MethodType.methodType(void.class, Object.class));
+        }
+        catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Error: Could not find SkipListSet.reBalance()!", e);
+        }
+    }
+}
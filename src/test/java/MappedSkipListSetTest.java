@@ -0,0 +1,226 @@
+// Crash recovery tests for the Memory-Mapped Skip List Set
+// Program created by Connor Cribley
+
+/*
+    DISCLAIMER: This program was created in its entirety by Connor Cribley. I do not authorize anybody to
+    replicate, alter, submit, or otherwise use this program in a way which violates the academic integrity of any
+    educational institution. Any attempt to use this code to commit academic plagiarism was done so without my
+    permission.
+*/
+
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/*
+Checks that a file left part way through a change is repaired when it is next opened. Each test stops an add or a
+remove after every possible number of writes in turn, as a crash would, then reopens the file and checks its keys,
+its size and every upper level against the bottom level, and that it can still be changed.
+*/
+class MappedSkipListSetTest {
+
+    //The file starts with the even keys below 2 * KEYS, less every tenth one (so there are free records to reuse)
+    private static final int KEYS = 300;
+
+    //Segments of 4KB hold a hundred or so records, so the file spans several of them
+    private static final int SMALL_SEGMENT_SHIFT = 12;
+
+    @TempDir
+    Path directory;
+
+    //Thrown to stop a change part way through
+    private static class Crash extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+    }
+
+    //Set that lets a given number of writes through and then crashes. Every write after that is dropped, so
+    //closing it only releases the file and leaves it marked open, as a program that died would
+    private static class CrashingSet extends MappedSkipListSet<Long> {
+        private boolean armed;
+        private boolean crashed;
+        private int writesLeft;
+
+        //Opens the file with a generator that makes every new record as tall as it can be
+        CrashingSet(Path file, int segmentShift) throws IOException {
+            super(file, KeySerializer.LONG, DEFAULT_MAX_LEVEL, maxLevel -> maxLevel, segmentShift);
+        }
+
+        //Lets the given number of writes through, then crashes on the next one
+        void crashAfter(int writes) {
+            armed = true;
+            writesLeft = writes;
+        }
+
+        boolean crashed() {
+            return crashed;
+        }
+
+        //Releases the file without marking it closed
+        void abandon() throws IOException {
+            crashed = true;
+            close();
+        }
+
+        @Override
+        void putInt(long offset, int value) {
+            if (allowWrite())
+                super.putInt(offset, value);
+        }
+
+        @Override
+        void putLong(long offset, long value) {
+            if (allowWrite())
+                super.putLong(offset, value);
+        }
+
+        //Returns true if a write goes ahead
+        private boolean allowWrite() {
+            if (crashed)
+                return false;
+            if (!armed || writesLeft-- > 0)
+                return true;
+            crashed = true;
+            throw new Crash();
+        }
+    }
+
+    @Test
+    void recoversFromCrashDuringAdd() throws IOException {
+        crashEverywhere(MappedSkipListSet.DEFAULT_SEGMENT_SHIFT, true);
+    }
+
+    @Test
+    void recoversFromCrashDuringRemove() throws IOException {
+        crashEverywhere(MappedSkipListSet.DEFAULT_SEGMENT_SHIFT, false);
+    }
+
+    @Test
+    void recoversFromCrashDuringAddWithSmallSegments() throws IOException {
+        crashEverywhere(SMALL_SEGMENT_SHIFT, true);
+    }
+
+    @Test
+    void recoversFromCrashDuringRemoveWithSmallSegments() throws IOException {
+        crashEverywhere(SMALL_SEGMENT_SHIFT, false);
+    }
+
+    //Crashes an add (or remove) of keys at the front, middle and back of the list after every number of writes
+    private void crashEverywhere(int segmentShift, boolean adding) throws IOException {
+        Path base = directory.resolve("base");
+        TreeSet<Long> keys = writeBase(base, segmentShift);
+        if (segmentShift == SMALL_SEGMENT_SHIFT)
+            assertTrue(Files.size(base) > 2L << segmentShift, "the file should span several segments");
+
+        long[] changedKeys = adding ? new long[] {-1, KEYS + 1, 2 * KEYS + 1} : new long[] {keys.first(), KEYS + 2, keys.last()};
+        Path file = directory.resolve("file");
+        for (long key : changedKeys) {
+            TreeSet<Long> changed = new TreeSet<Long>(keys);
+            if (adding)
+                changed.add(key);
+            else
+                changed.remove(key);
+
+            boolean completed = false;
+            for (int writes = 0; !completed; writes++) {
+                Files.copy(base, file, StandardCopyOption.REPLACE_EXISTING);
+                CrashingSet set = new CrashingSet(file, segmentShift);
+                set.crashAfter(writes);
+                try {
+                    if (adding)
+                        set.add(key);
+                    else
+                        set.remove(key);
+                }
+                catch (Crash e) {
+                    //The change stopped part way through
+                }
+                completed = !set.crashed();
+                set.abandon();
+
+                String where = (adding ? "adding " : "removing ") + key + " after " + writes + " writes";
+                try (MappedSkipListSet<Long> recovered = open(file, segmentShift)) {
+                    List<Long> contents = new ArrayList<Long>(recovered);
+                    if (completed)
+                        assertEquals(new ArrayList<Long>(changed), contents, where);
+                    else
+                        assertTrue(contents.equals(new ArrayList<Long>(keys)) || contents.equals(new ArrayList<Long>(changed)),
+                            "crashed " + where + ", got neither the old nor the new keys");
+                    assertEquals(contents.size(), recovered.size(), where);
+                    assertLevels(recovered, where);
+                    assertUsable(recovered, new TreeSet<Long>(contents), where);
+                }
+            }
+        }
+    }
+
+    //Writes the starting keys to a new file, closed properly, and returns them
+    private static TreeSet<Long> writeBase(Path file, int segmentShift) throws IOException {
+        List<Long> order = new ArrayList<Long>();
+        for (long key = 0; key < 2 * KEYS; key += 2)
+            order.add(key);
+        Collections.shuffle(order, new Random(42));
+        TreeSet<Long> keys = new TreeSet<Long>();
+        try (MappedSkipListSet<Long> set = open(file, segmentShift)) {
+            for (Long key : order) {
+                set.add(key);
+                keys.add(key);
+            }
+            for (long key = 0; key < 2 * KEYS; key += 20) {
+                set.remove(key);
+                keys.remove(key);
+            }
+        }
+        return keys;
+    }
+
+    private static MappedSkipListSet<Long> open(Path file, int segmentShift) throws IOException {
+        return new MappedSkipListSet<Long>(file, KeySerializer.LONG, MappedSkipListSet.DEFAULT_MAX_LEVEL, LevelGenerator.seeded(7), segmentShift);
+    }
+
+    //Checks that every upper level holds exactly the records along the bottom level that are tall enough for it
+    private static void assertLevels(MappedSkipListSet<Long> set, String where) {
+        List<Long> bottom = recordsOnLevel(set, 0);
+        for (int level = 1; level < set.getLevels(set.head); level++) {
+            List<Long> expected = new ArrayList<Long>();
+            for (long item : bottom)
+                if (set.getLevels(item) > level)
+                    expected.add(item);
+            assertEquals(expected, recordsOnLevel(set, level), "level " + level + " after " + where);
+        }
+    }
+
+    //Returns the offsets of the records along a level, in order
+    private static List<Long> recordsOnLevel(MappedSkipListSet<Long> set, int level) {
+        List<Long> records = new ArrayList<Long>();
+        for (long item = set.getNext(set.head, level); item != set.tail; item = set.getNext(item, level))
+            records.add(item);
+        return records;
+    }
+
+    //Checks searches and the ends of the list, then changes the set some more and checks it again
+    private static void assertUsable(MappedSkipListSet<Long> set, TreeSet<Long> expected, String where) {
+        for (long key = -2; key <= 2 * KEYS + 2; key++)
+            assertEquals(expected.contains(key), set.contains(key), "contains(" + key + ") after " + where);
+        assertEquals(expected.isEmpty() ? null : expected.first(), set.first(), where);
+        assertEquals(expected.isEmpty() ? null : expected.last(), set.last(), where);
+
+        Random random = new Random(1);
+        for (int i = 0; i < 100; i++) {
+            long key = random.nextInt(2 * KEYS);
+            assertEquals(expected.add(key), set.add(key), where);
+            key = random.nextInt(2 * KEYS);
+            assertEquals(expected.remove(key), set.remove(key), where);
+        }
+        assertEquals(new ArrayList<Long>(expected), new ArrayList<Long>(set), where);
+        assertEquals(expected.size(), set.size(), where);
+        assertLevels(set, where);
+    }
+}